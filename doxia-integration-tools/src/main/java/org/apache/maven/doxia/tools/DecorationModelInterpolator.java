@@ -0,0 +1,218 @@
+package org.apache.maven.doxia.tools;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.ListIterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.doxia.site.decoration.DecorationModel;
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.util.xml.Xpp3Dom;
+
+/**
+ * Interpolator of the String values of a decoration model, walking its object graph (including custom DOM content)
+ * instead of writing it to XML, interpolating the XML text and parsing it again: only values containing an
+ * expression are interpolated, and interpolated values don't need to be XML escaped.
+ *
+ * @since 1.9.3
+ */
+class DecorationModelInterpolator
+{
+    private static final String EXPRESSION_START = "${";
+
+    /**
+     * Fields to walk, by decoration model class.
+     */
+    private static final ConcurrentMap<Class<?>, List<Field>> FIELDS = new ConcurrentHashMap<Class<?>, List<Field>>();
+
+    private final SiteDescriptorInterpolator interpolator;
+
+    /**
+     * @param interpolator the interpolator of String values, not null.
+     */
+    DecorationModelInterpolator( SiteDescriptorInterpolator interpolator )
+    {
+        this.interpolator = interpolator;
+    }
+
+    /**
+     * Interpolate in place the String values of a decoration model.
+     *
+     * @param decoration the decoration model, not null.
+     * @throws InterpolationException if a value can't be interpolated.
+     */
+    void interpolate( DecorationModel decoration )
+        throws InterpolationException
+    {
+        interpolateObject( decoration );
+    }
+
+    private void interpolateObject( Object object )
+        throws InterpolationException
+    {
+        if ( object instanceof Xpp3Dom )
+        {
+            interpolateDom( (Xpp3Dom) object );
+            return;
+        }
+
+        try
+        {
+            for ( Field field : getFields( object.getClass() ) )
+            {
+                Object value = field.get( object );
+
+                if ( value instanceof String )
+                {
+                    String interpolated = interpolateString( (String) value );
+                    if ( interpolated != value )
+                    {
+                        field.set( object, interpolated );
+                    }
+                }
+                else if ( value instanceof List )
+                {
+                    interpolateList( (List<?>) value );
+                }
+                else if ( value != null && isWalkable( value.getClass() ) )
+                {
+                    interpolateObject( value );
+                }
+            }
+        }
+        catch ( IllegalAccessException e )
+        {
+            // fields are made accessible
+            throw new IllegalStateException( e );
+        }
+    }
+
+    @SuppressWarnings( "unchecked" )
+    private void interpolateList( List<?> list )
+        throws InterpolationException
+    {
+        for ( ListIterator<Object> it = ( (List<Object>) list ).listIterator(); it.hasNext(); )
+        {
+            Object element = it.next();
+
+            if ( element instanceof String )
+            {
+                String interpolated = interpolateString( (String) element );
+                if ( interpolated != element )
+                {
+                    it.set( interpolated );
+                }
+            }
+            else if ( element != null && isWalkable( element.getClass() ) )
+            {
+                interpolateObject( element );
+            }
+        }
+    }
+
+    private void interpolateDom( Xpp3Dom dom )
+        throws InterpolationException
+    {
+        String value = dom.getValue();
+        if ( value != null && value.contains( EXPRESSION_START ) )
+        {
+            dom.setValue( interpolateString( value ) );
+        }
+
+        for ( String name : dom.getAttributeNames() )
+        {
+            String attribute = dom.getAttribute( name );
+            if ( attribute != null && attribute.contains( EXPRESSION_START ) )
+            {
+                dom.setAttribute( name, interpolateString( attribute ) );
+            }
+        }
+
+        for ( Xpp3Dom child : dom.getChildren() )
+        {
+            interpolateDom( child );
+        }
+    }
+
+    private String interpolateString( String value )
+        throws InterpolationException
+    {
+        if ( !value.contains( EXPRESSION_START ) )
+        {
+            return value;
+        }
+
+        return interpolator.interpolate( value );
+    }
+
+    /**
+     * @return the non static fields of a decoration model class that can contain Strings: String fields, Lists and
+     * decoration model objects (including custom DOM content, declared as Object).
+     */
+    private static List<Field> getFields( Class<?> clazz )
+    {
+        List<Field> fields = FIELDS.get( clazz );
+
+        if ( fields == null )
+        {
+            fields = new ArrayList<Field>();
+
+            for ( Class<?> c = clazz; c != null && c != Object.class; c = c.getSuperclass() )
+            {
+                for ( Field field : c.getDeclaredFields() )
+                {
+                    Class<?> type = field.getType();
+
+                    if ( Modifier.isStatic( field.getModifiers() ) || field.isSynthetic() )
+                    {
+                        continue;
+                    }
+
+                    if ( type == String.class || List.class.isAssignableFrom( type ) || type == Object.class
+                        || type == Xpp3Dom.class || isWalkable( type ) )
+                    {
+                        field.setAccessible( true );
+                        fields.add( field );
+                    }
+                }
+            }
+
+            fields = Collections.unmodifiableList( fields );
+            FIELDS.put( clazz, fields );
+        }
+
+        return fields;
+    }
+
+    /**
+     * @return <code>true</code> for decoration model classes and DOM content.
+     */
+    private static boolean isWalkable( Class<?> type )
+    {
+        return Xpp3Dom.class.isAssignableFrom( type )
+            || DecorationModel.class.getPackage().equals( type.getPackage() );
+    }
+}
@@ -24,10 +24,8 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
 import java.io.StringReader;
-import java.io.StringWriter;
 import java.net.MalformedURLException;
 import java.net.URL;
-import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
@@ -36,6 +34,10 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
 import java.util.StringTokenizer;
+import java.util.WeakHashMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 
 import org.apache.commons.io.FilenameUtils;
 import org.apache.maven.artifact.Artifact;
@@ -54,7 +56,8 @@ import org.apache.maven.doxia.site.decoration.MenuItem;
 import org.apache.maven.doxia.site.decoration.Skin;
 import org.apache.maven.doxia.site.decoration.inheritance.DecorationModelInheritanceAssembler;
 import org.apache.maven.doxia.site.decoration.io.xpp3.DecorationXpp3Reader;
-import org.apache.maven.doxia.site.decoration.io.xpp3.DecorationXpp3Writer;
+import org.apache.maven.doxia.tools.ReactorCache.InheritedDecoration;
+import org.apache.maven.doxia.tools.SiteDescriptorInterpolator.CachedValueSources;
 import org.apache.maven.model.DistributionManagement;
 import org.apache.maven.model.Site;
 import org.apache.maven.project.MavenProject;
@@ -68,13 +71,13 @@ import org.codehaus.plexus.logging.AbstractLogEnabled;
 import org.codehaus.plexus.util.IOUtil;
 import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.StringUtils;
-import org.codehaus.plexus.interpolation.EnvarBasedValueSource;
 import org.codehaus.plexus.interpolation.InterpolationException;
 import org.codehaus.plexus.interpolation.MapBasedValueSource;
 import org.codehaus.plexus.interpolation.ObjectBasedValueSource;
 import org.codehaus.plexus.interpolation.PrefixedObjectValueSource;
 import org.codehaus.plexus.interpolation.PrefixedPropertiesValueSource;
-import org.codehaus.plexus.interpolation.RegexBasedInterpolator;
+import org.codehaus.plexus.interpolation.ValueSource;
+import org.codehaus.plexus.interpolation.os.OperatingSystemUtils;
 import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 
 /**
@@ -122,6 +125,19 @@ public class DefaultSiteTool
     @Requirement
     protected MavenProjectBuilder mavenProjectBuilder;
 
+    /**
+     * Are the site descriptors from repositories resolved in parallel, before inheritance assembly needs them? Only
+     * with Maven 3 by default, where parent projects are already built and artifact resolution is thread safe.
+     */
+    private boolean preResolution = isMaven3OrMore();
+
+    /**
+     * The caches of reactor builds, by reactor projects list: weakly referenced, a cache is freed with its list once
+     * its build is done.
+     */
+    private final Map<List<MavenProject>, ReactorCache> reactorCaches =
+        new WeakHashMap<List<MavenProject>, ReactorCache>();
+
     // ----------------------------------------------------------------------
     // Public methods
     // ----------------------------------------------------------------------
@@ -372,6 +388,26 @@ public class DefaultSiteTool
     File getSiteDescriptorFromRepository( MavenProject project, ArtifactRepository localRepository,
                                                  List<ArtifactRepository> repositories, Locale locale )
         throws SiteToolException
+    {
+        return getSiteDescriptorFromRepository( project, localRepository, repositories, locale, null );
+    }
+
+    /**
+     * Get a site descriptor from one of the repositories, resolved once per reactor build.
+     *
+     * @param project the Maven project, not null.
+     * @param localRepository the Maven local repository, not null.
+     * @param repositories the Maven remote repositories, not null.
+     * @param locale the locale wanted for the site descriptor, could be null.
+     * @param reactorCache the cache of the site descriptor resolutions, or <code>null</code> to not cache them.
+     * @return the site descriptor into the local repository after download of it from repositories or null if not
+     * found in repositories.
+     * @throws SiteToolException if any
+     */
+    private File getSiteDescriptorFromRepository( MavenProject project, ArtifactRepository localRepository,
+                                                  List<ArtifactRepository> repositories, Locale locale,
+                                                  ReactorCache reactorCache )
+        throws SiteToolException
     {
         checkNotNull( "project", project );
         checkNotNull( "localRepository", localRepository );
@@ -381,12 +417,7 @@ public class DefaultSiteTool
 
         try
         {
-            return resolveSiteDescriptor( project, localRepository, repositories, llocale );
-        }
-        catch ( ArtifactNotFoundException e )
-        {
-            getLogger().debug( "ArtifactNotFoundException: Unable to locate site descriptor: " + e );
-            return null;
+            return resolveSiteDescriptor( project, localRepository, repositories, llocale, reactorCache );
         }
         catch ( ArtifactResolutionException e )
         {
@@ -451,10 +482,14 @@ public class DefaultSiteTool
 
         getLogger().debug( "Computing decoration model of " + project.getId() + " for locale " + llocale );
 
-        Map.Entry<DecorationModel, MavenProject> result =
-            getDecorationModel( 0, siteDirectory, llocale, project, reactorProjects, localRepository, repositories );
-        DecorationModel decorationModel = result.getKey();
-        MavenProject parentProject = result.getValue();
+        ReactorCache reactorCache = getReactorCache( reactorProjects );
+
+        preResolveSiteDescriptors( project, llocale, reactorCache, localRepository, repositories );
+
+        InheritedDecoration result = getDecorationModel( 0, siteDirectory, llocale, project, reactorProjects,
+                                                         reactorCache, localRepository, repositories );
+        DecorationModel decorationModel = result.getDecorationModel();
+        MavenProject parentProject = result.getParentProject();
 
         if ( decorationModel == null )
         {
@@ -481,13 +516,16 @@ public class DefaultSiteTool
             decorationModel = readDecorationModel( siteDescriptorContent );
         }
 
-        // DecorationModel back to String to interpolate, then go back to DecorationModel
-        String siteDescriptorContent = decorationModelToString( decorationModel );
-
-        // "classical" late interpolation, after full inheritance
-        siteDescriptorContent = getInterpolatedSiteDescriptorContent( project, siteDescriptorContent, false );
-
-        decorationModel = readDecorationModel( siteDescriptorContent );
+        // "classical" late interpolation, after full inheritance, directly on the DecorationModel objects
+        try
+        {
+            new DecorationModelInterpolator( createInterpolator( project, false, reactorCache ) )
+                .interpolate( decorationModel );
+        }
+        catch ( InterpolationException e )
+        {
+            throw new SiteToolException( "Cannot interpolate site descriptor: " + e.getMessage(), e );
+        }
 
         if ( parentProject != null )
         {
@@ -522,48 +560,90 @@ public class DefaultSiteTool
         checkNotNull( "props", props );
 
         // "classical" late interpolation
-        return getInterpolatedSiteDescriptorContent( aProject, siteDescriptorContent, false );
+        return getInterpolatedSiteDescriptorContent( aProject, siteDescriptorContent, false, null );
     }
 
-    private String getInterpolatedSiteDescriptorContent( MavenProject aProject,
-                                                        String siteDescriptorContent, boolean isEarly )
+    private String getInterpolatedSiteDescriptorContent( MavenProject aProject, String siteDescriptorContent,
+                                                         boolean isEarly, ReactorCache reactorCache )
         throws SiteToolException
     {
         checkNotNull( "aProject", aProject );
         checkNotNull( "siteDescriptorContent", siteDescriptorContent );
 
-        RegexBasedInterpolator interpolator = new RegexBasedInterpolator();
+        SiteDescriptorInterpolator interpolator = createInterpolator( aProject, isEarly, reactorCache );
 
-        if ( isEarly )
+        try
         {
-            interpolator.addValueSource( new PrefixedObjectValueSource( "this.", aProject ) );
-            interpolator.addValueSource( new PrefixedPropertiesValueSource( "this.", aProject.getProperties() ) );
+            // FIXME: this does not escape xml entities, see MSITE-226, PLXCOMP-118
+            return interpolator.interpolate( siteDescriptorContent );
         }
-        else
+        catch ( InterpolationException e )
         {
-            interpolator.addValueSource( new ObjectBasedValueSource( aProject ) );
-            interpolator.addValueSource( new MapBasedValueSource( aProject.getProperties() ) );
+            throw new SiteToolException( "Cannot interpolate site descriptor: " + e.getMessage(), e );
+        }
+    }
 
-            try
+    /**
+     * @param aProject not null
+     * @param isEarly <code>true</code> for early interpolation of <code>${this.*}</code>, <code>false</code> for
+     * "classical" late interpolation
+     * @param reactorCache the reactor cache where the project value sources are kept, could be null
+     * @return the interpolator with the value sources of the project
+     * @throws SiteToolException if the environment variables can't be read
+     */
+    private SiteDescriptorInterpolator createInterpolator( MavenProject aProject, boolean isEarly,
+                                                           ReactorCache reactorCache )
+        throws SiteToolException
+    {
+        CachedValueSources valueSources =
+            ( reactorCache == null ) ? null : reactorCache.getValueSources( aProject, isEarly );
+
+        if ( valueSources == null )
+        {
+            List<ValueSource> sources = new ArrayList<ValueSource>();
+
+            if ( isEarly )
             {
-                interpolator.addValueSource( new EnvarBasedValueSource() );
+                sources.add( new PrefixedObjectValueSource( "this.", aProject ) );
+                sources.add( new PrefixedPropertiesValueSource( "this.", aProject.getProperties() ) );
             }
-            catch ( IOException e )
+            else
             {
-                // Prefer logging?
-                throw new SiteToolException( "IOException: cannot interpolate environment properties: "
-                    + e.getMessage(), e );
+                sources.add( new ObjectBasedValueSource( aProject ) );
+                sources.add( new MapBasedValueSource( aProject.getProperties() ) );
+                // same as EnvarBasedValueSource, without copying the environment every time
+                sources.add( new PrefixedPropertiesValueSource( Collections.singletonList( "env." ),
+                                                                getEnvironment( reactorCache ), true ) );
+            }
+
+            valueSources = new CachedValueSources( sources );
+
+            if ( reactorCache != null )
+            {
+                reactorCache.putValueSources( aProject, isEarly, valueSources );
             }
         }
 
+        return new SiteDescriptorInterpolator( valueSources, isEarly ? null : "project" );
+    }
+
+    /**
+     * @param reactorCache the reactor cache where the environment variables are kept, could be null
+     * @return the environment variables, read only once per reactor build
+     * @throws SiteToolException if the environment variables can't be read
+     */
+    private static Properties getEnvironment( ReactorCache reactorCache )
+        throws SiteToolException
+    {
         try
         {
-            // FIXME: this does not escape xml entities, see MSITE-226, PLXCOMP-118
-            return interpolator.interpolate( siteDescriptorContent, isEarly ? null : "project" );
+            return ( reactorCache == null ) ? OperatingSystemUtils.getSystemEnvVars() : reactorCache.getEnvironment();
         }
-        catch ( InterpolationException e )
+        catch ( IOException e )
         {
-            throw new SiteToolException( "Cannot interpolate site descriptor: " + e.getMessage(), e );
+            // Prefer logging?
+            throw new SiteToolException( "IOException: cannot interpolate environment properties: "
+                + e.getMessage(), e );
         }
     }
 
@@ -586,17 +666,13 @@ public class DefaultSiteTool
         MavenProject origParent = aProject.getParent();
         if ( origParent != null )
         {
-            for ( MavenProject reactorProject : reactorProjects )
+            parentProject = getReactorCache( reactorProjects ).getReactorProject( reactorProjects,
+                                                                                  origParent.getGroupId(),
+                                                                                  origParent.getArtifactId(),
+                                                                                  origParent.getVersion() );
+            if ( parentProject != null )
             {
-                if ( reactorProject.getGroupId().equals( origParent.getGroupId() )
-                    && reactorProject.getArtifactId().equals( origParent.getArtifactId() )
-                    && reactorProject.getVersion().equals( origParent.getVersion() ) )
-                {
-                    parentProject = reactorProject;
-
-                    getLogger().debug( "Parent project " + origParent.getId() + " picked from reactor" );
-                    break;
-                }
+                getLogger().debug( "Parent project " + origParent.getId() + " picked from reactor" );
             }
 
             if ( parentProject == null && aProject.getBasedir() != null
@@ -788,9 +864,11 @@ public class DefaultSiteTool
                 menu.setName( i18n.getString( "site-tool", llocale, "decorationModel.menu.projectmodules" ) );
             }
 
+            ReactorCache reactorCache = getReactorCache( reactorProjects );
+
             for ( String module : (List<String>) project.getModules() )
             {
-                MavenProject moduleProject = getModuleFromReactor( project, reactorProjects, module );
+                MavenProject moduleProject = getModuleFromReactor( project, reactorProjects, reactorCache, module );
 
                 if ( moduleProject == null )
                 {
@@ -836,21 +914,12 @@ public class DefaultSiteTool
     }
 
     private static MavenProject getModuleFromReactor( MavenProject project, List<MavenProject> reactorProjects,
-                                                      String module )
+                                                      ReactorCache reactorCache, String module )
         throws IOException
     {
-        File moduleBasedir = new File( project.getBasedir(), module ).getCanonicalFile();
+        File moduleBasedir = new File( getNormalizedPath( new File( project.getBasedir(), module ).getPath() ) );
 
-        for ( MavenProject reactorProject : reactorProjects )
-        {
-            if ( moduleBasedir.equals( reactorProject.getBasedir() ) )
-            {
-                return reactorProject;
-            }
-        }
-
-        // module not found in reactor
-        return null;
+        return reactorCache.getReactorProject( reactorProjects, moduleBasedir );
     }
 
     /** {@inheritDoc} */
@@ -1045,81 +1114,254 @@ public class DefaultSiteTool
      * @param localRepository not null
      * @param repositories not null
      * @param locale not null
-     * @return the resolved site descriptor
+     * @param reactorCache the cache of the site descriptor resolutions, could be null
+     * @return the resolved site descriptor, or <code>null</code> if not found
      * @throws IOException if any
      * @throws ArtifactResolutionException if any
-     * @throws ArtifactNotFoundException if any
      */
     private File resolveSiteDescriptor( MavenProject project, ArtifactRepository localRepository,
-                                        List<ArtifactRepository> repositories, Locale locale )
-        throws IOException, ArtifactResolutionException, ArtifactNotFoundException
+                                        List<ArtifactRepository> repositories, Locale locale,
+                                        ReactorCache reactorCache )
+        throws IOException, ArtifactResolutionException
+    {
+        File result = getSiteDescriptorArtifact( project, "site_" + locale.getLanguage(), localRepository,
+                                                 repositories, reactorCache );
+
+        if ( result == null )
+        {
+            getLogger().debug( "No site descriptor found for " + project.getId() + " for locale "
+                + locale.getLanguage() + ", trying without locale..." );
+
+            result = getSiteDescriptorArtifact( project, "site", localRepository, repositories, reactorCache );
+
+            if ( result == null )
+            {
+                getLogger().debug( "No site descriptor found for " + project.getId() + " without locale." );
+            }
+        }
+
+        return result;
+    }
+
+    /**
+     * Get a site descriptor artifact, resolved only once per reactor build when a reactor cache is given.
+     *
+     * @param project not null
+     * @param classifier the classifier of the site descriptor artifact, not null
+     * @param localRepository not null
+     * @param repositories not null
+     * @param reactorCache the cache of the site descriptor resolutions, could be null
+     * @return the resolved site descriptor, or <code>null</code> if not found
+     * @throws IOException if any
+     * @throws ArtifactResolutionException if any
+     */
+    private File getSiteDescriptorArtifact( MavenProject project, String classifier,
+                                            ArtifactRepository localRepository,
+                                            List<ArtifactRepository> repositories, ReactorCache reactorCache )
+        throws IOException, ArtifactResolutionException
+    {
+        if ( reactorCache == null )
+        {
+            return resolveSiteDescriptorArtifact( project, classifier, localRepository, repositories );
+        }
+
+        String key = getSiteDescriptorKey( project, classifier );
+        Future<File> resolution =
+            startSiteDescriptorResolution( project, classifier, localRepository, repositories, reactorCache );
+
+        try
+        {
+            return resolution.get();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while resolving site descriptor " + key, e );
+        }
+        catch ( ExecutionException e )
+        {
+            // don't remember failures: next request will retry
+            reactorCache.forgetSiteDescriptor( key, resolution );
+
+            Throwable cause = e.getCause();
+            if ( cause instanceof IOException )
+            {
+                throw (IOException) cause;
+            }
+            if ( cause instanceof ArtifactResolutionException )
+            {
+                throw (ArtifactResolutionException) cause;
+            }
+            if ( cause instanceof RuntimeException )
+            {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException( "Unable to resolve site descriptor " + key, cause );
+        }
+    }
+
+    /**
+     * Run the resolution of a site descriptor artifact in the current thread, unless it was already started in the
+     * reactor build.
+     *
+     * @param project not null
+     * @param classifier the classifier of the site descriptor artifact, not null
+     * @param localRepository not null
+     * @param repositories not null
+     * @param reactorCache not null
+     * @return the resolution of the site descriptor, whose result is <code>null</code> if not found
+     */
+    private Future<File> startSiteDescriptorResolution( final MavenProject project, final String classifier,
+                                                        final ArtifactRepository localRepository,
+                                                        final List<ArtifactRepository> repositories,
+                                                        ReactorCache reactorCache )
     {
-        File result;
+        Callable<File> resolution = new Callable<File>()
+        {
+            public File call()
+                throws IOException, ArtifactResolutionException
+            {
+                return resolveSiteDescriptorArtifact( project, classifier, localRepository, repositories );
+            }
+        };
 
+        return reactorCache.resolveSiteDescriptor( getSiteDescriptorKey( project, classifier ), resolution );
+    }
+
+    private static String getSiteDescriptorKey( MavenProject project, String classifier )
+    {
+        return project.getGroupId() + ':' + project.getArtifactId() + ':' + project.getVersion() + ':' + classifier;
+    }
+
+    /**
+     * @param project not null
+     * @param classifier the classifier of the site descriptor artifact, not null
+     * @param localRepository not null
+     * @param repositories not null
+     * @return the resolved site descriptor, or <code>null</code> if not found
+     * @throws IOException if any
+     * @throws ArtifactResolutionException if any
+     */
+    private File resolveSiteDescriptorArtifact( MavenProject project, String classifier,
+                                                ArtifactRepository localRepository,
+                                                List<ArtifactRepository> repositories )
+        throws IOException, ArtifactResolutionException
+    {
         // TODO: this is a bit crude - proper type, or proper handling as metadata rather than an artifact in 2.1?
         Artifact artifact = artifactFactory.createArtifactWithClassifier( project.getGroupId(),
                                                                           project.getArtifactId(),
-                                                                          project.getVersion(), "xml",
-                                                                          "site_" + locale.getLanguage() );
+                                                                          project.getVersion(), "xml", classifier );
 
-        boolean found = false;
         try
         {
             artifactResolver.resolve( artifact, repositories, localRepository );
 
-            result = artifact.getFile();
+            File result = artifact.getFile();
 
             // we use zero length files to avoid re-resolution (see below)
-            if ( result.length() > 0 )
-            {
-                found = true;
-            }
-            else
-            {
-                getLogger().debug( "No site descriptor found for " + project.getId() + " for locale "
-                    + locale.getLanguage() + ", trying without locale..." );
-            }
+            return ( result.length() > 0 ) ? result : null;
         }
         catch ( ArtifactNotFoundException e )
         {
-            getLogger().debug( "Unable to locate site descriptor for locale " + locale.getLanguage() + ": " + e );
+            getLogger().debug( "Unable to locate site descriptor " + classifier + ": " + e );
 
             // we can afford to write an empty descriptor here as we don't expect it to turn up later in the remote
             // repository, because the parent was already released (and snapshots are updated automatically if changed)
-            result = new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
+            File result = new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
             result.getParentFile().mkdirs();
             result.createNewFile();
+
+            return null;
         }
+    }
 
-        if ( !found )
+    /**
+     * Start resolving in parallel the site descriptors of the project and of its ancestors that come from
+     * repositories, before inheritance assembly needs them one after the other: like the resolution on demand,
+     * <code>site_&lt;lang&gt;.xml</code> is resolved first, then <code>site.xml</code> only if not found.
+     * Only done if {@link #setPreResolution(boolean) enabled}.
+     *
+     * @param project not null
+     * @param locale not null
+     * @param reactorCache not null
+     * @param localRepository not null
+     * @param repositories not null
+     */
+    private void preResolveSiteDescriptors( MavenProject project, final Locale locale,
+                                            final ReactorCache reactorCache,
+                                            final ArtifactRepository localRepository,
+                                            final List<ArtifactRepository> repositories )
+    {
+        if ( !preResolution )
         {
-            artifact = artifactFactory.createArtifactWithClassifier( project.getGroupId(), project.getArtifactId(),
-                                                                     project.getVersion(), "xml", "site" );
-            try
+            return;
+        }
+
+        // with Maven 3, parent projects are the ones of the reactor or from the repository, see getParentProject()
+        for ( MavenProject p = project; p != null; p = p.getParent() )
+        {
+            if ( p.getBasedir() != null )
             {
-                artifactResolver.resolve( artifact, repositories, localRepository );
+                continue;
             }
-            catch ( ArtifactNotFoundException e )
+
+            final MavenProject repositoryProject = p;
+            reactorCache.execute( new Runnable()
             {
-                // see above regarding this zero length file
-                result = new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
-                result.getParentFile().mkdirs();
-                result.createNewFile();
+                public void run()
+                {
+                    try
+                    {
+                        resolveSiteDescriptor( repositoryProject, localRepository, repositories, locale,
+                                               reactorCache );
+                    }
+                    catch ( IOException e )
+                    {
+                        // reported by the resolution on demand, that retries it
+                        getLogger().debug( "Unable to resolve site descriptor of " + repositoryProject.getId(), e );
+                    }
+                    catch ( ArtifactResolutionException e )
+                    {
+                        getLogger().debug( "Unable to resolve site descriptor of " + repositoryProject.getId(), e );
+                    }
+                    catch ( RuntimeException e )
+                    {
+                        getLogger().debug( "Unable to resolve site descriptor of " + repositoryProject.getId(), e );
+                    }
+                }
+            } );
+        }
+    }
 
-                throw e;
-            }
+    /**
+     * @param preResolution <code>true</code> to resolve in parallel the site descriptors from repositories, before
+     * inheritance assembly needs them: by default, only with Maven 3.
+     */
+    void setPreResolution( boolean preResolution )
+    {
+        this.preResolution = preResolution;
+    }
 
-            result = artifact.getFile();
+    /**
+     * Get the cache of a reactor build: a new cache is created for every reactor projects list not already seen.
+     *
+     * @param reactorProjects the reactor projects, not null.
+     * @return the reactor cache
+     */
+    private ReactorCache getReactorCache( List<MavenProject> reactorProjects )
+    {
+        synchronized ( reactorCaches )
+        {
+            ReactorCache reactorCache = reactorCaches.get( reactorProjects );
 
-            // we use zero length files to avoid re-resolution (see below)
-            if ( result.length() == 0 )
+            if ( reactorCache == null )
             {
-                getLogger().debug( "No site descriptor found for " + project.getId() + " without locale." );
-                result = null;
+                reactorCache = new ReactorCache();
+                reactorCaches.put( reactorProjects, reactorCache );
             }
-        }
 
-        return result;
+            return reactorCache;
+        }
     }
 
     /**
@@ -1128,27 +1370,43 @@ public class DefaultSiteTool
      * @param locale not null
      * @param project not null
      * @param reactorProjects not null
+     * @param reactorCache not null
      * @param localRepository not null
      * @param repositories not null
-     * @param origProps not null
      * @return the decoration model depending the locale and the parent project
      * @throws SiteToolException if any
      */
-    private Map.Entry<DecorationModel, MavenProject> getDecorationModel( int depth, File siteDirectory, Locale locale,
-                                                                         MavenProject project,
-                                                                         List<MavenProject> reactorProjects,
-                                                                         ArtifactRepository localRepository,
-                                                                         List<ArtifactRepository> repositories )
+    private InheritedDecoration getDecorationModel( int depth, File siteDirectory, Locale locale,
+                                                    MavenProject project, List<MavenProject> reactorProjects,
+                                                    ReactorCache reactorCache, ArtifactRepository localRepository,
+                                                    List<ArtifactRepository> repositories )
         throws SiteToolException
     {
+        // 0. parent levels are shared by many projects of the reactor: assemble each of them only once
+        String cacheKey = null;
+        if ( depth > 0 )
+        {
+            cacheKey = project.getId() + ':' + locale + ':' + siteDirectory;
+
+            InheritedDecoration cached = reactorCache.getDecoration( cacheKey );
+            if ( cached != null )
+            {
+                getLogger().debug( "Reusing level " + depth + " parent site decoration model of " + project.getId() );
+
+                return cached;
+            }
+        }
+
         // 1. get site descriptor File
+        List<File> descriptors = new ArrayList<File>();
         File siteDescriptor;
         if ( project.getBasedir() == null )
         {
             // POM is in the repository: look into the repository for site descriptor
             try
             {
-                siteDescriptor = getSiteDescriptorFromRepository( project, localRepository, repositories, locale );
+                siteDescriptor = getSiteDescriptorFromRepository( project, localRepository, repositories, locale,
+                                                                  reactorCache );
             }
             catch ( SiteToolException e )
             {
@@ -1160,6 +1418,18 @@ public class DefaultSiteTool
         {
             // POM is in build directory: look for site descriptor as local file
             siteDescriptor = getSiteDescriptor( siteDirectory, locale );
+
+            // a localized site descriptor added later would take precedence
+            File localizedSiteDescriptor = new File( siteDirectory, "site_" + locale.getLanguage() + ".xml" );
+            if ( !localizedSiteDescriptor.equals( siteDescriptor ) )
+            {
+                descriptors.add( localizedSiteDescriptor );
+            }
+        }
+
+        if ( siteDescriptor != null )
+        {
+            descriptors.add( siteDescriptor );
         }
 
         // 2. read DecorationModel from site descriptor File and do early interpolation (${this.*})
@@ -1177,7 +1447,8 @@ public class DefaultSiteTool
                 String siteDescriptorContent = readSiteDescriptor( siteDescriptorReader, project.getId() );
 
                 // interpolate ${this.*} = early interpolation
-                siteDescriptorContent = getInterpolatedSiteDescriptorContent( project, siteDescriptorContent, true );
+                siteDescriptorContent =
+                    getInterpolatedSiteDescriptorContent( project, siteDescriptorContent, true, reactorCache );
 
                 decoration = readDecorationModel( siteDescriptorContent );
                 decoration.setLastModified( siteDescriptor.lastModified() );
@@ -1219,9 +1490,11 @@ public class DefaultSiteTool
                 // has different configuration. But this is a rare case (this only has impact if parent is from reactor)
             }
 
-            DecorationModel parentDecoration =
-                getDecorationModel( depth, parentSiteDirectory, locale, parentProject, reactorProjects, localRepository,
-                                    repositories ).getKey();
+            InheritedDecoration parent = getDecorationModel( depth, parentSiteDirectory, locale, parentProject,
+                                                             reactorProjects, reactorCache, localRepository,
+                                                             repositories );
+            DecorationModel parentDecoration = parent.getDecorationModel();
+            descriptors.addAll( parent.getDescriptors() );
 
             // MSHARED-116 requires an empty decoration model (instead of a null one)
             // MSHARED-145 requires us to do this only if there is a parent to merge it with
@@ -1250,7 +1523,14 @@ public class DefaultSiteTool
                                                 parentDistMgmnt == null ? projectDistMgmnt : parentDistMgmnt );
         }
 
-        return new AbstractMap.SimpleEntry<DecorationModel, MavenProject>( decoration, parentProject );
+        InheritedDecoration result = new InheritedDecoration( decoration, parentProject, descriptors );
+
+        if ( cacheKey != null )
+        {
+            reactorCache.putDecoration( cacheKey, result );
+        }
+
+        return result;
     }
 
     /**
@@ -1275,26 +1555,6 @@ public class DefaultSiteTool
         }
     }
 
-    private String decorationModelToString( DecorationModel decoration )
-        throws SiteToolException
-    {
-        StringWriter writer = new StringWriter();
-
-        try
-        {
-            new DecorationXpp3Writer().write( writer, decoration );
-            return writer.toString();
-        }
-        catch ( IOException e )
-        {
-            throw new SiteToolException( "Error reading site descriptor", e );
-        }
-        finally
-        {
-            IOUtil.close( writer );
-        }
-    }
-
     private static String buildRelativePath( final String toPath,  final String fromPath, final char separatorChar )
     {
         // use tokenizer to traverse paths and for lazy checking
@@ -0,0 +1,390 @@
+package org.apache.maven.doxia.tools;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.doxia.site.decoration.DecorationModel;
+import org.apache.maven.doxia.tools.SiteDescriptorInterpolator.CachedValueSources;
+import org.apache.maven.project.MavenProject;
+import org.codehaus.plexus.interpolation.os.OperatingSystemUtils;
+
+/**
+ * Cache of the computations shared by all the projects of a reactor build, i.e. of the same
+ * <code>reactorProjects</code> list.
+ *
+ * @since 1.9.3
+ */
+class ReactorCache
+{
+    /**
+     * Maximum number of site descriptors resolved in parallel from repositories.
+     */
+    private static final int RESOLUTION_THREADS = 4;
+
+    /**
+     * Idle time after which resolution threads end, in seconds.
+     */
+    private static final long RESOLUTION_KEEP_ALIVE = 10;
+
+    /**
+     * Decoration models of parent projects, with inheritance from their own parents already assembled.
+     */
+    private final ConcurrentMap<String, InheritedDecoration> decorations =
+        new ConcurrentHashMap<String, InheritedDecoration>();
+
+    /**
+     * Interpolation value sources of early interpolation, by project.
+     */
+    private final Map<MavenProject, CachedValueSources> earlyValueSources =
+        Collections.synchronizedMap( new IdentityHashMap<MavenProject, CachedValueSources>() );
+
+    /**
+     * Interpolation value sources of late interpolation, by project.
+     */
+    private final Map<MavenProject, CachedValueSources> lateValueSources =
+        Collections.synchronizedMap( new IdentityHashMap<MavenProject, CachedValueSources>() );
+
+    /**
+     * Resolutions of site descriptors from repositories, by artifact: a <code>null</code> file records that the
+     * site descriptor was not found.
+     */
+    private final ConcurrentMap<String, Future<File>> siteDescriptors =
+        new ConcurrentHashMap<String, Future<File>>();
+
+    /**
+     * Threads of the resolutions run in background, created on first use.
+     */
+    private ThreadPoolExecutor executor;
+
+    /**
+     * Reactor projects by <code>groupId:artifactId:version</code>, indexed on first lookup.
+     */
+    private Map<String, MavenProject> projectsById;
+
+    /**
+     * Reactor projects by basedir, as given and canonical, indexed on first lookup.
+     */
+    private Map<File, MavenProject> projectsByBasedir;
+
+    /**
+     * Snapshot of the environment variables for late interpolation, read on first use.
+     */
+    private Properties environment;
+
+    /**
+     * @param key the key of the parent project decoration, not null.
+     * @return the cached decoration, or <code>null</code> if not cached or if one of its site descriptors has
+     * changed since it was cached.
+     */
+    InheritedDecoration getDecoration( String key )
+    {
+        InheritedDecoration decoration = decorations.get( key );
+
+        if ( decoration != null && !decoration.isUpToDate() )
+        {
+            decorations.remove( key, decoration );
+            return null;
+        }
+
+        return decoration;
+    }
+
+    void putDecoration( String key, InheritedDecoration decoration )
+    {
+        decorations.put( key, decoration );
+    }
+
+    /**
+     * @param project the project, not null.
+     * @param early <code>true</code> for early interpolation, <code>false</code> for late interpolation.
+     * @return the cached interpolation value sources of the project, or <code>null</code>.
+     */
+    CachedValueSources getValueSources( MavenProject project, boolean early )
+    {
+        return ( early ? earlyValueSources : lateValueSources ).get( project );
+    }
+
+    void putValueSources( MavenProject project, boolean early, CachedValueSources valueSources )
+    {
+        ( early ? earlyValueSources : lateValueSources ).put( project, valueSources );
+    }
+
+    /**
+     * @return the environment variables, read once per reactor build.
+     * @throws IOException if the environment variables can't be read
+     */
+    synchronized Properties getEnvironment()
+        throws IOException
+    {
+        if ( environment == null )
+        {
+            environment = OperatingSystemUtils.getSystemEnvVars();
+        }
+
+        return environment;
+    }
+
+    /**
+     * Get the resolution of a site descriptor, starting it if it was not already started by another caller.
+     *
+     * @param key the key of the site descriptor artifact, not null.
+     * @param resolution the resolution to run in the current thread if not already started, not null.
+     * @return the resolution of the site descriptor, whose result is <code>null</code> if not found.
+     */
+    Future<File> resolveSiteDescriptor( String key, Callable<File> resolution )
+    {
+        Future<File> future = siteDescriptors.get( key );
+
+        if ( future == null )
+        {
+            FutureTask<File> task = new FutureTask<File>( resolution );
+
+            future = siteDescriptors.putIfAbsent( key, task );
+            if ( future == null )
+            {
+                future = task;
+                task.run();
+            }
+        }
+
+        return future;
+    }
+
+    /**
+     * Run a task in background, in the threads of this reactor build: they end once idle, so they are never shut down.
+     *
+     * @param task the task, not null.
+     */
+    synchronized void execute( Runnable task )
+    {
+        if ( executor == null )
+        {
+            ThreadFactory threadFactory = new ThreadFactory()
+            {
+                private final AtomicInteger count = new AtomicInteger();
+
+                public Thread newThread( Runnable r )
+                {
+                    Thread thread = new Thread( r, "site-descriptor-resolver-" + count.incrementAndGet() );
+                    thread.setDaemon( true );
+                    return thread;
+                }
+            };
+
+            executor = new ThreadPoolExecutor( RESOLUTION_THREADS, RESOLUTION_THREADS, RESOLUTION_KEEP_ALIVE,
+                                               TimeUnit.SECONDS, new LinkedBlockingQueue<Runnable>(), threadFactory );
+            executor.allowCoreThreadTimeOut( true );
+        }
+
+        executor.execute( task );
+    }
+
+    /**
+     * Forget a failed resolution of a site descriptor, to retry it on next request.
+     *
+     * @param key the key of the site descriptor artifact, not null.
+     * @param resolution the failed resolution, not null.
+     */
+    void forgetSiteDescriptor( String key, Future<File> resolution )
+    {
+        siteDescriptors.remove( key, resolution );
+    }
+
+    /**
+     * Find a project of the reactor by its coordinates.
+     *
+     * @param reactorProjects the reactor projects this cache is for, not null.
+     * @param groupId the groupId of the project, not null.
+     * @param artifactId the artifactId of the project, not null.
+     * @param version the version of the project, not null.
+     * @return the first reactor project with these coordinates, or <code>null</code> if none.
+     */
+    MavenProject getReactorProject( List<MavenProject> reactorProjects, String groupId, String artifactId,
+                                    String version )
+    {
+        index( reactorProjects );
+
+        return projectsById.get( getProjectKey( groupId, artifactId, version ) );
+    }
+
+    /**
+     * Find a project of the reactor by its basedir.
+     *
+     * @param reactorProjects the reactor projects this cache is for, not null.
+     * @param basedir the basedir of the project, absolute and normalized, not null.
+     * @return the first reactor project with this basedir, or <code>null</code> if none.
+     * @throws IOException if the basedir can't be made canonical
+     */
+    MavenProject getReactorProject( List<MavenProject> reactorProjects, File basedir )
+        throws IOException
+    {
+        index( reactorProjects );
+
+        MavenProject project = projectsByBasedir.get( basedir );
+
+        if ( project == null )
+        {
+            // only pay for canonicalization when the basedir is not found as given
+            project = projectsByBasedir.get( basedir.getCanonicalFile() );
+        }
+
+        return project;
+    }
+
+    private synchronized void index( List<MavenProject> reactorProjects )
+    {
+        if ( projectsById != null )
+        {
+            return;
+        }
+
+        Map<String, MavenProject> byId = new HashMap<String, MavenProject>();
+        Map<File, MavenProject> byBasedir = new HashMap<File, MavenProject>();
+
+        for ( MavenProject reactorProject : reactorProjects )
+        {
+            String key = getProjectKey( reactorProject.getGroupId(), reactorProject.getArtifactId(),
+                                        reactorProject.getVersion() );
+            if ( !byId.containsKey( key ) )
+            {
+                byId.put( key, reactorProject );
+            }
+
+            File basedir = reactorProject.getBasedir();
+            if ( basedir != null )
+            {
+                if ( !byBasedir.containsKey( basedir ) )
+                {
+                    byBasedir.put( basedir, reactorProject );
+                }
+
+                try
+                {
+                    File canonicalBasedir = basedir.getCanonicalFile();
+                    if ( !byBasedir.containsKey( canonicalBasedir ) )
+                    {
+                        byBasedir.put( canonicalBasedir, reactorProject );
+                    }
+                }
+                catch ( IOException e )
+                {
+                    // found only by its basedir as given
+                }
+            }
+        }
+
+        projectsByBasedir = byBasedir;
+        projectsById = byId;
+    }
+
+    private static String getProjectKey( String groupId, String artifactId, String version )
+    {
+        return groupId + ':' + artifactId + ':' + version;
+    }
+
+    /**
+     * A decoration model after inheritance assembly, with the parent project and the site descriptors it was
+     * computed from.
+     */
+    static final class InheritedDecoration
+    {
+        private final DecorationModel decorationModel;
+
+        private final MavenProject parentProject;
+
+        private final List<File> descriptors;
+
+        private final long[] lastModified;
+
+        private final long[] length;
+
+        /**
+         * @param decorationModel the assembled decoration model, could be null.
+         * @param parentProject the parent project, could be null.
+         * @param descriptors the site descriptors read to assemble the decoration model, not null.
+         */
+        InheritedDecoration( DecorationModel decorationModel, MavenProject parentProject, List<File> descriptors )
+        {
+            this.decorationModel = decorationModel;
+            this.parentProject = parentProject;
+            this.descriptors = descriptors;
+            this.lastModified = new long[descriptors.size()];
+            this.length = new long[descriptors.size()];
+
+            for ( int i = 0; i < lastModified.length; i++ )
+            {
+                lastModified[i] = descriptors.get( i ).lastModified();
+                length[i] = descriptors.get( i ).length();
+            }
+        }
+
+        /**
+         * @return a copy of the decoration model, that can be modified by the caller, or null.
+         */
+        DecorationModel getDecorationModel()
+        {
+            return ( decorationModel == null ) ? null : decorationModel.clone();
+        }
+
+        MavenProject getParentProject()
+        {
+            return parentProject;
+        }
+
+        List<File> getDescriptors()
+        {
+            return descriptors;
+        }
+
+        /**
+         * @return <code>true</code> if none of the site descriptors has been created, modified or deleted.
+         */
+        boolean isUpToDate()
+        {
+            for ( int i = 0; i < lastModified.length; i++ )
+            {
+                File descriptor = descriptors.get( i );
+                if ( descriptor.lastModified() != lastModified[i] || descriptor.length() != length[i] )
+                {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
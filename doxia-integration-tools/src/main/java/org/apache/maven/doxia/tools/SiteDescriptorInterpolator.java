@@ -0,0 +1,270 @@
+package org.apache.maven.doxia.tools;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.codehaus.plexus.interpolation.InterpolationCycleException;
+import org.codehaus.plexus.interpolation.InterpolationException;
+import org.codehaus.plexus.interpolation.RecursionInterceptor;
+import org.codehaus.plexus.interpolation.SimpleRecursionInterceptor;
+import org.codehaus.plexus.interpolation.ValueSource;
+
+/**
+ * Interpolator of site descriptor content, with the same expression syntax and resolution rules as
+ * <code>RegexBasedInterpolator</code>, but in a single pass: the text is split once into literal and expression
+ * segments, and expression values are looked up in {@link CachedValueSources}, that can be shared by all the
+ * interpolations of a project.
+ *
+ * @since 1.9.3
+ */
+class SiteDescriptorInterpolator
+{
+    private static final String EXPRESSION_START = "${";
+
+    private static final char EXPRESSION_END = '}';
+
+    private final CachedValueSources valueSources;
+
+    private final String thisPrefix;
+
+    /**
+     * @param valueSources the value sources, not null.
+     * @param thisPrefix the prefix removed from expressions before looking them up, like <code>project</code> for
+     * <code>${project.name}</code>, could be null.
+     */
+    SiteDescriptorInterpolator( CachedValueSources valueSources, String thisPrefix )
+    {
+        this.valueSources = valueSources;
+        this.thisPrefix = thisPrefix;
+    }
+
+    /**
+     * Interpolate a text: expressions without value are kept as is.
+     *
+     * @param text the text to interpolate, not null.
+     * @return the interpolated text.
+     * @throws InterpolationException if an expression references itself.
+     */
+    String interpolate( String text )
+        throws InterpolationException
+    {
+        if ( !text.contains( EXPRESSION_START ) )
+        {
+            return text;
+        }
+
+        return interpolate( text, new SimpleRecursionInterceptor() );
+    }
+
+    private String interpolate( String text, RecursionInterceptor recursionInterceptor )
+        throws InterpolationException
+    {
+        List<String> segments = compile( text );
+
+        if ( segments.size() == 1 )
+        {
+            return text;
+        }
+
+        StringBuilder result = new StringBuilder( text.length() );
+
+        // literal segments at even indexes, expressions (with their ${ }) at odd indexes
+        for ( int i = 0; i < segments.size(); i++ )
+        {
+            String segment = segments.get( i );
+
+            if ( i % 2 == 0 )
+            {
+                result.append( segment );
+            }
+            else
+            {
+                String value = resolve( segment, recursionInterceptor );
+                result.append( ( value == null ) ? segment : value );
+            }
+        }
+
+        return result.toString();
+    }
+
+    /**
+     * Split a text into segments: literal, expression, literal, ..., literal. Expressions are matched like the
+     * <code>\$\{(<i>thisPrefix</i>)?(.+?)\}</code> regular expression.
+     */
+    private List<String> compile( String text )
+    {
+        List<String> segments = new ArrayList<String>();
+
+        int literalStart = 0;
+        int start = text.indexOf( EXPRESSION_START );
+
+        while ( start >= 0 )
+        {
+            int contentStart = start + EXPRESSION_START.length();
+            int end = -1;
+
+            if ( thisPrefix != null && text.startsWith( thisPrefix, contentStart ) )
+            {
+                end = getExpressionEnd( text, contentStart + thisPrefix.length() );
+            }
+            if ( end < 0 )
+            {
+                end = getExpressionEnd( text, contentStart );
+            }
+
+            if ( end < 0 )
+            {
+                // not an expression: look for the next one
+                start = text.indexOf( EXPRESSION_START, start + 1 );
+                continue;
+            }
+
+            segments.add( text.substring( literalStart, start ) );
+            segments.add( text.substring( start, end + 1 ) );
+
+            literalStart = end + 1;
+            start = text.indexOf( EXPRESSION_START, literalStart );
+        }
+
+        segments.add( text.substring( literalStart ) );
+
+        return segments;
+    }
+
+    /**
+     * @param text the text
+     * @param contentStart the index of the expression content, after <code>${</code>
+     * @return the index of the <code>}</code> ending an expression content of at least one char, or -1 if a line
+     * terminator or the end of the text comes first.
+     */
+    private static int getExpressionEnd( String text, int contentStart )
+    {
+        for ( int i = contentStart; i < text.length(); i++ )
+        {
+            char c = text.charAt( i );
+
+            if ( c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029' )
+            {
+                return -1;
+            }
+
+            if ( c == EXPRESSION_END && i > contentStart )
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * @param wholeExpr the expression, with its <code>${</code> and <code>}</code>.
+     * @return the interpolated value of the expression, or null if it has no value.
+     */
+    private String resolve( String wholeExpr, RecursionInterceptor recursionInterceptor )
+        throws InterpolationException
+    {
+        String expression = wholeExpr.substring( EXPRESSION_START.length(), wholeExpr.length() - 1 );
+
+        if ( thisPrefix != null && expression.startsWith( thisPrefix )
+            && expression.length() > thisPrefix.length() )
+        {
+            expression = expression.substring( thisPrefix.length() );
+        }
+        if ( expression.startsWith( "." ) )
+        {
+            expression = expression.substring( 1 );
+        }
+
+        if ( recursionInterceptor.hasRecursiveExpression( expression ) )
+        {
+            throw new InterpolationCycleException( recursionInterceptor, expression, wholeExpr );
+        }
+
+        recursionInterceptor.expressionResolutionStarted( expression );
+        try
+        {
+            Object value = valueSources.getValue( expression );
+
+            return ( value == null ) ? null : interpolate( String.valueOf( value ), recursionInterceptor );
+        }
+        finally
+        {
+            recursionInterceptor.expressionResolutionFinished( expression );
+        }
+    }
+
+    /**
+     * Value sources of a project, with every expression looked up only once in each value source.
+     */
+    static final class CachedValueSources
+    {
+        private static final Object NO_VALUE = new Object();
+
+        private final List<ValueSource> valueSources;
+
+        private final ConcurrentMap<String, Object> values = new ConcurrentHashMap<String, Object>();
+
+        /**
+         * @param valueSources the value sources, by order of precedence.
+         */
+        CachedValueSources( List<ValueSource> valueSources )
+        {
+            this.valueSources = valueSources;
+        }
+
+        /**
+         * @param expression the expression, without <code>${</code> and <code>}</code>.
+         * @return the value of the expression in the first value source that has one, or null.
+         */
+        Object getValue( String expression )
+        {
+            Object value = values.get( expression );
+
+            if ( value == null )
+            {
+                // value sources are not thread safe
+                synchronized ( valueSources )
+                {
+                    for ( ValueSource valueSource : valueSources )
+                    {
+                        value = valueSource.getValue( expression );
+
+                        // feedback of failed lookups is not used, and would grow with every lookup
+                        valueSource.clearFeedback();
+
+                        if ( value != null )
+                        {
+                            break;
+                        }
+                    }
+
+                    values.put( expression, ( value == null ) ? NO_VALUE : value );
+                }
+            }
+
+            return ( value == NO_VALUE ) ? null : value;
+        }
+    }
+}
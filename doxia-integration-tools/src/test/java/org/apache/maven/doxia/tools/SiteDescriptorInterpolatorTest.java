@@ -0,0 +1,98 @@
+package org.apache.maven.doxia.tools;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.maven.doxia.tools.SiteDescriptorInterpolator.CachedValueSources;
+import org.codehaus.plexus.interpolation.InterpolationCycleException;
+import org.codehaus.plexus.interpolation.MapBasedValueSource;
+import org.codehaus.plexus.interpolation.RegexBasedInterpolator;
+import org.codehaus.plexus.interpolation.ValueSource;
+import org.junit.Test;
+
+/**
+ * Check that SiteDescriptorInterpolator gives the same results as RegexBasedInterpolator.
+ */
+public class SiteDescriptorInterpolatorTest
+{
+    private static final String[] TEXTS =
+        { "no expression", "${name}", "${.name}", "${project.name}", "${projectname}", "${project}", "${project}}",
+            "${projectX}", "${}", "${}}", "${}${name}", "${a ${name}", "$${name}", "${name", "}${name}{",
+            "${name} ${name} ${unknown} ${nested}", "${\nname}${name}", "${na\nme}", "${name}\n${X}", "${${name}}",
+            "<project>\n  <name>${project.name} ${X}</name>\n</project>" };
+
+    @Test
+    public void testSameAsRegexBasedInterpolator()
+        throws Exception
+    {
+        for ( String thisPrefix : new String[] { null, "project" } )
+        {
+            for ( String text : TEXTS )
+            {
+                RegexBasedInterpolator expected = new RegexBasedInterpolator();
+                expected.addValueSource( new MapBasedValueSource( getValues() ) );
+
+                assertEquals( thisPrefix + " " + text, expected.interpolate( text, thisPrefix ),
+                              getInterpolator( thisPrefix ).interpolate( text ) );
+            }
+        }
+    }
+
+    @Test
+    public void testCycle()
+        throws Exception
+    {
+        try
+        {
+            getInterpolator( "project" ).interpolate( "${loop1}" );
+            fail( "cycle not detected" );
+        }
+        catch ( InterpolationCycleException e )
+        {
+            // expected
+        }
+    }
+
+    private SiteDescriptorInterpolator getInterpolator( String thisPrefix )
+    {
+        CachedValueSources valueSources =
+            new CachedValueSources( Arrays.<ValueSource>asList( new MapBasedValueSource( getValues() ) ) );
+
+        return new SiteDescriptorInterpolator( valueSources, thisPrefix );
+    }
+
+    private static Map<String, String> getValues()
+    {
+        Map<String, String> values = new HashMap<String, String>();
+        values.put( "name", "N" );
+        values.put( "X", "x" );
+        values.put( "project", "P" );
+        values.put( "nested", "<${name}>" );
+        values.put( "loop1", "${loop2}" );
+        values.put( "loop2", "${loop1}" );
+        return values;
+    }
+}
@@ -28,21 +28,28 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.repository.ArtifactRepository;
 import org.apache.maven.artifact.repository.ArtifactRepositoryFactory;
 import org.apache.maven.artifact.repository.ArtifactRepositoryPolicy;
 import org.apache.maven.artifact.repository.layout.ArtifactRepositoryLayout;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
 import org.apache.maven.doxia.site.decoration.DecorationModel;
 import org.apache.maven.doxia.site.decoration.LinkItem;
 import org.apache.maven.doxia.site.decoration.Skin;
 import org.apache.maven.doxia.site.decoration.io.xpp3.DecorationXpp3Writer;
+import org.apache.maven.doxia.tools.stubs.CountingArtifactResolverStub;
 import org.apache.maven.doxia.tools.stubs.SiteToolMavenProjectStub;
 import org.apache.maven.project.MavenProject;
 
 import org.codehaus.plexus.PlexusTestCase;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReflectionUtils;
 import org.codehaus.plexus.util.WriterFactory;
 
 /**
@@ -58,6 +65,18 @@ public class SiteToolTest
      */
     protected ArtifactRepository getLocalRepo()
         throws Exception
+    {
+        return getLocalRepo( getTestFile( "target/local-repo" ) );
+    }
+
+    /**
+     * @param basedir the base directory of the repo.
+     * @return the repo.
+     *
+     * @throws Exception
+     */
+    protected ArtifactRepository getLocalRepo( File basedir )
+        throws Exception
     {
         String updatePolicyFlag = ArtifactRepositoryPolicy.UPDATE_POLICY_ALWAYS;
         String checksumPolicyFlag = ArtifactRepositoryPolicy.CHECKSUM_POLICY_WARN;
@@ -69,7 +88,7 @@ public class SiteToolTest
         ArtifactRepositoryLayout defaultArtifactRepositoryLayout = (ArtifactRepositoryLayout) lookup(
                                                                                                       ArtifactRepositoryLayout.ROLE,
                                                                                                       "default" );
-        return artifactRepositoryFactory.createArtifactRepository( "local", getTestFile( "target/local-repo" ).toURI().toURL()
+        return artifactRepositoryFactory.createArtifactRepository( "local", basedir.toURI().toURL()
             .toString(), defaultArtifactRepositoryLayout, snapshotsPolicy, releasesPolicy );
     }
 
@@ -391,6 +410,129 @@ public class SiteToolTest
 
         // property overrides env
         assertEquals( "PATH = PATH property from pom", links.next().getName() );
+
+        // late interpolation is done on the model: transient fields are kept
+        assertTrue( model.getLastModified() > 0 );
+    }
+
+    public void testDecorationModelInheritanceCache()
+        throws Exception
+    {
+        SiteTool tool = (SiteTool) lookup( SiteTool.ROLE );
+        assertNotNull( tool );
+
+        SiteToolMavenProjectStub parentProject = new SiteToolMavenProjectStub( "interpolation-parent-test" );
+        parentProject.setDistgributionManagementSiteUrl( "dav:https://davs.codehaus.org/site" );
+
+        SiteToolMavenProjectStub childProject = new SiteToolMavenProjectStub( "interpolation-child-test" );
+        childProject.setParent( parentProject );
+        childProject.setDistgributionManagementSiteUrl( "dav:https://davs.codehaus.org/site/child" );
+
+        List<MavenProject> reactorProjects = Collections.<MavenProject>singletonList( parentProject );
+
+        DecorationModel model = tool.getDecorationModel( new File( childProject.getBasedir(), "src/site" ),
+                                                         Locale.getDefault(), childProject, reactorProjects,
+                                                         getLocalRepo(), childProject.getRemoteArtifactRepositories() );
+        assertEquals( "this.artifactId = mshared-217-parent", model.getBannerRight().getName() );
+
+        // modifying a decoration model must not change the parent decoration model cached for the reactor
+        model.getBannerRight().setName( "modified" );
+
+        DecorationModel cachedModel =
+            tool.getDecorationModel( new File( childProject.getBasedir(), "src/site" ), Locale.getDefault(),
+                                     childProject, reactorProjects, getLocalRepo(),
+                                     childProject.getRemoteArtifactRepositories() );
+        assertNotSame( model, cachedModel );
+        assertEquals( "this.artifactId = mshared-217-parent", cachedModel.getBannerRight().getName() );
+        assertEquals( "../../index.html", cachedModel.getBody().getBreadcrumbs().iterator().next().getHref() );
+    }
+
+    @SuppressWarnings( "rawtypes" )
+    public void testSiteDescriptorResolutionCache()
+        throws Exception
+    {
+        DefaultSiteTool tool = (DefaultSiteTool) lookup( SiteTool.ROLE );
+        assertNotNull( tool );
+
+        // a child resolves its site descriptors only once those of its parent are being resolved in parallel
+        final CountDownLatch parentResolving = new CountDownLatch( 1 );
+        final List<Boolean> parallel = Collections.synchronizedList( new ArrayList<Boolean>() );
+        CountingArtifactResolverStub resolver = new CountingArtifactResolverStub()
+        {
+            @Override
+            public void resolve( Artifact artifact, List remoteRepositories, ArtifactRepository localRepository )
+                throws ArtifactResolutionException, ArtifactNotFoundException
+            {
+                if ( "stand-in-parent".equals( artifact.getArtifactId() ) )
+                {
+                    parentResolving.countDown();
+                }
+                else
+                {
+                    try
+                    {
+                        parallel.add( parentResolving.await( 10, TimeUnit.SECONDS ) );
+                    }
+                    catch ( InterruptedException e )
+                    {
+                        throw new IllegalStateException( e );
+                    }
+                }
+                super.resolve( artifact, remoteRepositories, localRepository );
+            }
+        };
+        ReflectionUtils.setVariableValueInObject( tool, "artifactResolver", resolver );
+        tool.setPreResolution( true );
+
+        // a local repository standing in for remote repositories
+        File localRepoDir = getTestFile( "target/stand-in-local-repo" );
+        FileUtils.deleteDirectory( localRepoDir );
+        FileUtils.copyDirectoryStructure( getTestFile( "src/test/resources/unit/stand-in-repository" ), localRepoDir );
+        ArtifactRepository localRepo = getLocalRepo( localRepoDir );
+        List<ArtifactRepository> repositories = Collections.emptyList();
+
+        // an ancestor chain from the repository: only the parent has a site descriptor
+        SiteToolMavenProjectStub parent = new SiteToolMavenProjectStub( "site-tool-test" );
+        parent.setBasedir( null );
+        parent.setGroupId( "org.apache.maven.doxia.test" );
+        parent.setArtifactId( "stand-in-parent" );
+        parent.setVersion( "1.0" );
+        SiteToolMavenProjectStub project = new SiteToolMavenProjectStub( "site-tool-test" );
+        project.setBasedir( null );
+        project.setGroupId( "org.apache.maven.doxia.test" );
+        project.setArtifactId( "stand-in-child" );
+        project.setVersion( "1.0" );
+        project.setParent( parent );
+        List<MavenProject> reactorProjects = new ArrayList<MavenProject>();
+        reactorProjects.add( parent );
+
+        for ( Locale locale : Arrays.asList( Locale.ENGLISH, Locale.FRENCH, Locale.ENGLISH ) )
+        {
+            DecorationModel model =
+                tool.getDecorationModel( null, locale, project, reactorProjects, localRepo, repositories );
+            assertEquals( "Stand-in parent", model.getBannerLeft().getName() );
+        }
+
+        assertFalse( "child resolved before its parent: not resolved in parallel", parallel.contains( false ) );
+
+        // every site descriptor is resolved once per reactor build, found or not
+        for ( String artifactId : Arrays.asList( "stand-in-parent", "stand-in-child" ) )
+        {
+            for ( String classifier : Arrays.asList( "site_en", "site_fr", "site" ) )
+            {
+                assertEquals( artifactId + ':' + classifier, 1, resolver.getResolutions( artifactId, classifier ) );
+            }
+        }
+
+        // absence of site descriptors is recorded for next builds
+        File siteEn = new File( localRepoDir, "org/apache/maven/doxia/test/stand-in-parent/1.0/"
+            + "stand-in-parent-1.0-site_en.xml" );
+        assertTrue( siteEn.isFile() );
+        assertEquals( 0, siteEn.length() );
+        assertEquals( new File( localRepoDir, "org/apache/maven/doxia/test/stand-in-parent/1.0/"
+            + "stand-in-parent-1.0-site.xml" ),
+                      tool.getSiteDescriptorFromRepository( parent, localRepo, repositories, Locale.FRENCH ) );
+        assertNull( tool.getSiteDescriptorFromRepository( project, localRepo, repositories, Locale.ENGLISH ) );
     }
 
     private void writeModel( DecorationModel model, String to )
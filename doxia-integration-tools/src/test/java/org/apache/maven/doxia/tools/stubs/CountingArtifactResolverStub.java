@@ -0,0 +1,132 @@
+package org.apache.maven.doxia.tools.stubs;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.artifact.metadata.ArtifactMetadataSource;
+import org.apache.maven.artifact.repository.ArtifactRepository;
+import org.apache.maven.artifact.resolver.ArtifactNotFoundException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionException;
+import org.apache.maven.artifact.resolver.ArtifactResolutionResult;
+import org.apache.maven.artifact.resolver.ArtifactResolver;
+import org.apache.maven.artifact.resolver.filter.ArtifactFilter;
+
+/**
+ * Artifact resolver resolving artifacts from the local repository only, counting the resolutions of each
+ * <code>artifactId:classifier</code>.
+ */
+@SuppressWarnings( "rawtypes" )
+public class CountingArtifactResolverStub
+    implements ArtifactResolver
+{
+    private final ConcurrentMap<String, AtomicInteger> resolutions = new ConcurrentHashMap<String, AtomicInteger>();
+
+    /**
+     * @param artifactId the artifactId
+     * @param classifier the classifier
+     * @return the number of resolutions of the artifact
+     */
+    public int getResolutions( String artifactId, String classifier )
+    {
+        AtomicInteger count = resolutions.get( artifactId + ':' + classifier );
+        return ( count == null ) ? 0 : count.get();
+    }
+
+    /** {@inheritDoc} */
+    public void resolve( Artifact artifact, List remoteRepositories, ArtifactRepository localRepository )
+        throws ArtifactResolutionException, ArtifactNotFoundException
+    {
+        String key = artifact.getArtifactId() + ':' + artifact.getClassifier();
+        resolutions.putIfAbsent( key, new AtomicInteger() );
+        resolutions.get( key ).incrementAndGet();
+
+        File file = new File( localRepository.getBasedir(), localRepository.pathOf( artifact ) );
+        if ( !file.isFile() )
+        {
+            throw new ArtifactNotFoundException( "Not in local repository", artifact );
+        }
+        artifact.setFile( file );
+    }
+
+    /** {@inheritDoc} */
+    public void resolveAlways( Artifact artifact, List remoteRepositories, ArtifactRepository localRepository )
+        throws ArtifactResolutionException, ArtifactNotFoundException
+    {
+        resolve( artifact, remoteRepositories, localRepository );
+    }
+
+    /** {@inheritDoc} */
+    public ArtifactResolutionResult resolveTransitively( Set artifacts, Artifact originatingArtifact,
+                                                         List remoteRepositories, ArtifactRepository localRepository,
+                                                         ArtifactMetadataSource source )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public ArtifactResolutionResult resolveTransitively( Set artifacts, Artifact originatingArtifact,
+                                                         List remoteRepositories, ArtifactRepository localRepository,
+                                                         ArtifactMetadataSource source, List listeners )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public ArtifactResolutionResult resolveTransitively( Set artifacts, Artifact originatingArtifact,
+                                                         ArtifactRepository localRepository, List remoteRepositories,
+                                                         ArtifactMetadataSource source, ArtifactFilter filter )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public ArtifactResolutionResult resolveTransitively( Set artifacts, Artifact originatingArtifact,
+                                                         Map managedVersions, ArtifactRepository localRepository,
+                                                         List remoteRepositories, ArtifactMetadataSource source )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public ArtifactResolutionResult resolveTransitively( Set artifacts, Artifact originatingArtifact,
+                                                         Map managedVersions, ArtifactRepository localRepository,
+                                                         List remoteRepositories, ArtifactMetadataSource source,
+                                                         ArtifactFilter filter )
+    {
+        throw new UnsupportedOperationException();
+    }
+
+    /** {@inheritDoc} */
+    public ArtifactResolutionResult resolveTransitively( Set artifacts, Artifact originatingArtifact,
+                                                         Map managedVersions, ArtifactRepository localRepository,
+                                                         List remoteRepositories, ArtifactMetadataSource source,
+                                                         ArtifactFilter filter, List listeners )
+    {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,190 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Writer to a file that buffers content and writes the file only if content differs from the existing file: an
+ * unchanged file keeps its timestamp, and a changed file is replaced atomically. Like {@link DeferredFileWriter},
+ * if nothing is written, the file is left untouched.
+ *
+ * @since 1.9.3
+ */
+class ChangedContentFileWriter
+    extends Writer
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final File file;
+
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream( BUFFER_SIZE );
+
+    private final Writer writer;
+
+    private boolean written;
+
+    private boolean closed;
+
+    ChangedContentFileWriter( File file, String encoding )
+        throws IOException
+    {
+        this.file = file;
+        this.writer = WriterFactory.newWriter( buffer, encoding );
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        written |= len > 0;
+        writer.write( cbuf, off, len );
+    }
+
+    @Override
+    public void write( String str, int off, int len )
+        throws IOException
+    {
+        written |= len > 0;
+        writer.write( str, off, len );
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        // content is written to the file on close only
+        writer.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+
+        writer.close();
+
+        if ( written )
+        {
+            byte[] content = buffer.toByteArray();
+
+            if ( !hasContent( file, content ) )
+            {
+                replace( file, content );
+            }
+        }
+    }
+
+    /**
+     * Compare a file content, length first then bytes, stopping at first difference.
+     */
+    private static boolean hasContent( File file, byte[] content )
+        throws IOException
+    {
+        if ( !file.isFile() || file.length() != content.length )
+        {
+            return false;
+        }
+
+        InputStream in = new FileInputStream( file );
+        try
+        {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            int offset = 0;
+            int read;
+            while ( ( read = in.read( bytes ) ) > 0 )
+            {
+                if ( offset + read > content.length )
+                {
+                    return false;
+                }
+                for ( int i = 0; i < read; i++ )
+                {
+                    if ( bytes[i] != content[offset + i] )
+                    {
+                        return false;
+                    }
+                }
+                offset += read;
+            }
+            return offset == content.length;
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * Replace a file with a temporary file written in the same directory, for readers to never see partial content.
+     */
+    private static void replace( File file, byte[] content )
+        throws IOException
+    {
+        // java.io temporary file, to get default permissions instead of owner only ones
+        File temp = File.createTempFile( "." + file.getName() + '.', ".tmp", file.getParentFile() );
+
+        try
+        {
+            OutputStream out = new FileOutputStream( temp );
+            try
+            {
+                out.write( content );
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+
+            try
+            {
+                Files.move( temp.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+                            StandardCopyOption.REPLACE_EXISTING );
+            }
+            catch ( AtomicMoveNotSupportedException e )
+            {
+                Files.move( temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING );
+            }
+        }
+        finally
+        {
+            // only exists if something failed
+            temp.delete();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+
+/**
+ * Bounded char buffer between a writer thread and a reader thread: the writer blocks while the buffer is full, the
+ * reader blocks while it is empty. Once the reader side is closed, writes fail with an <code>IOException</code>, so
+ * the writer thread can stop early.
+ *
+ * @since 1.9.3
+ */
+class CharPipe
+{
+    private final String name;
+
+    private final char[] buffer;
+
+    /** index of first available char in buffer */
+    private int start;
+
+    /** number of available chars in buffer */
+    private int count;
+
+    private boolean writerClosed;
+
+    private boolean readerClosed;
+
+    /**
+     * @param name the name of the piped content, for error messages
+     * @param size the buffer size
+     */
+    CharPipe( String name, int size )
+    {
+        this.name = name;
+        this.buffer = new char[size];
+    }
+
+    /**
+     * Read chars, waiting for the writer if none is available.
+     *
+     * @return the number of chars read, or <code>-1</code> if the writer side is closed and all chars were read
+     */
+    int read( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        if ( len == 0 )
+        {
+            return 0;
+        }
+
+        synchronized ( buffer )
+        {
+            while ( count == 0 && !writerClosed )
+            {
+                if ( readerClosed )
+                {
+                    throw new IOException( "Reader closed" );
+                }
+                await();
+            }
+
+            if ( count == 0 )
+            {
+                return -1;
+            }
+
+            int n = Math.min( len, Math.min( count, buffer.length - start ) );
+            System.arraycopy( buffer, start, cbuf, off, n );
+            start = ( start + n ) % buffer.length;
+            count -= n;
+            buffer.notifyAll();
+            return n;
+        }
+    }
+
+    /**
+     * Write chars, waiting for the reader while the buffer is full.
+     *
+     * @throws IOException if the reader side is closed
+     */
+    void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        synchronized ( buffer )
+        {
+            while ( len > 0 )
+            {
+                while ( count == buffer.length && !readerClosed )
+                {
+                    await();
+                }
+
+                if ( readerClosed )
+                {
+                    throw new IOException( "Reader closed" );
+                }
+
+                int end = ( start + count ) % buffer.length;
+                int n = Math.min( len, Math.min( buffer.length - count, buffer.length - end ) );
+                System.arraycopy( cbuf, off, buffer, end, n );
+                count += n;
+                off += n;
+                len -= n;
+                buffer.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Close the writer side: the reader gets the end of content once it has read the remaining chars.
+     */
+    void closeWriter()
+    {
+        synchronized ( buffer )
+        {
+            writerClosed = true;
+            buffer.notifyAll();
+        }
+    }
+
+    /**
+     * Close the reader side: pending and next writes fail.
+     */
+    void closeReader()
+    {
+        synchronized ( buffer )
+        {
+            readerClosed = true;
+            buffer.notifyAll();
+        }
+    }
+
+    boolean isReaderClosed()
+    {
+        synchronized ( buffer )
+        {
+            return readerClosed;
+        }
+    }
+
+    private void await()
+        throws InterruptedIOException
+    {
+        try
+        {
+            buffer.wait();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException( "Interrupted while processing " + name );
+        }
+    }
+}
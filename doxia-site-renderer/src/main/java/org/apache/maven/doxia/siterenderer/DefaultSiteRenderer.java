@@ -19,7 +19,6 @@ package org.apache.maven.doxia.siterenderer;
  * under the License.
  */
 
-import java.io.BufferedReader;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
@@ -28,7 +27,6 @@ import java.io.InputStream;
 import java.io.LineNumberReader;
 import java.io.OutputStream;
 import java.io.Reader;
-import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
 import java.io.Writer;
@@ -37,18 +35,26 @@ import java.net.URL;
 import java.net.URLClassLoader;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
-import java.util.Enumeration;
-import java.util.Iterator;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipException;
 import java.util.zip.ZipFile;
@@ -68,13 +74,13 @@ import org.apache.maven.doxia.parser.Parser;
 import org.apache.maven.doxia.parser.manager.ParserNotFoundException;
 import org.apache.maven.doxia.site.decoration.DecorationModel;
 import org.apache.maven.doxia.site.decoration.PublishDate;
+import org.apache.maven.doxia.site.decoration.io.xpp3.DecorationXpp3Writer;
 import org.apache.maven.doxia.site.skin.SkinModel;
 import org.apache.maven.doxia.site.skin.io.xpp3.SkinXpp3Reader;
 import org.apache.maven.doxia.parser.module.ParserModule;
 import org.apache.maven.doxia.parser.module.ParserModuleManager;
 import org.apache.maven.doxia.parser.module.ParserModuleNotFoundException;
 import org.apache.maven.doxia.siterenderer.sink.SiteRendererSink;
-import org.apache.maven.doxia.util.XmlValidator;
 import org.apache.velocity.Template;
 import org.apache.velocity.context.Context;
 import org.apache.velocity.exception.ParseErrorException;
@@ -106,6 +112,7 @@ import org.codehaus.plexus.component.annotations.Component;
 import org.codehaus.plexus.component.annotations.Requirement;
 import org.codehaus.plexus.i18n.I18N;
 import org.codehaus.plexus.logging.AbstractLogEnabled;
+import org.codehaus.plexus.personality.plexus.lifecycle.phase.Disposable;
 import org.codehaus.plexus.util.DirectoryScanner;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
@@ -128,7 +135,7 @@ import org.codehaus.plexus.velocity.VelocityComponent;
 @Component( role = Renderer.class )
 public class DefaultSiteRenderer
     extends AbstractLogEnabled
-    implements Renderer
+    implements Renderer, Disposable
 {
     // ----------------------------------------------------------------------
     // Requirements
@@ -157,6 +164,43 @@ public class DefaultSiteRenderer
 
     private static final String TOOLS_LOCATION = "META-INF/maven/site-tools.xml";
 
+    /** Prototype of the <code>dateRevision</code> format, only used to be cloned. */
+    private static final DateFormat DATE_REVISION_FORMAT = new SimpleDateFormat( "yyyyMMdd" );
+
+    /** Skins extracted for copyResources(), shared by every site rendered with this renderer. */
+    private final SkinCache skinCache = new SkinCache();
+
+    /** Skins loaded for createContextForSkin(), shared by every site rendered with this renderer. */
+    private final SkinLoaderCache skinLoaderCache = new SkinLoaderCache();
+
+    /** XML validation grammars and entities, shared by every document rendered with this renderer. */
+    private final XmlStreamValidator xmlValidator = new XmlStreamValidator();
+
+    /** Parsers of the documents, one instance per rendering thread. */
+    private ParserPool parserPool;
+
+    /**
+     * Threads processing documents while they are parsed, like Velocity processing and XML validation, reused between
+     * documents.
+     */
+    private final ExecutorService pipelineExecutor = Executors.newCachedThreadPool( new ThreadFactory()
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        public Thread newThread( Runnable r )
+        {
+            Thread thread = new Thread( r, "doxia-pipeline-" + count.incrementAndGet() );
+            thread.setDaemon( true );
+            return thread;
+        }
+    } );
+
+    public DefaultSiteRenderer()
+    {
+        // default template is loaded from this renderer class loader, which content doesn't change
+        skinLoaderCache.addTemplateClassLoader( DefaultSiteRenderer.class.getClassLoader() );
+    }
+
     // ----------------------------------------------------------------------
     // Renderer implementation
     // ----------------------------------------------------------------------
@@ -173,25 +217,47 @@ public class DefaultSiteRenderer
                                                               boolean editable )
         throws IOException, RendererException
     {
+        long start = System.nanoTime();
+
         Map<String, DocumentRenderer> files = new LinkedHashMap<String, DocumentRenderer>();
+        // index of files keys, by key without case differences
+        Map<String, List<String>> caseInsensitiveKeys = new HashMap<String, List<String>>();
         Map<String, String> moduleExcludes = siteRenderingContext.getModuleExcludes();
 
+        File indexFile = siteRenderingContext.getDocumentIndexFile();
+        DocumentIndex index = ( indexFile == null ) ? null : DocumentIndex.load( indexFile );
+
+        // one scan per directory tree, each scanned directory being associated to the parser module of its documents
+        List<DocumentFileScanner> scanners = new ArrayList<DocumentFileScanner>();
+        List<List<ParserModule>> scannedModules = new ArrayList<List<ParserModule>>();
+        List<List<File>> scannedDirectories = new ArrayList<List<File>>();
+
         // look in every site directory (in general src/site or target/generated-site)
         for ( File siteDirectory : siteRenderingContext.getSiteDirectories() )
         {
             if ( siteDirectory.exists() )
             {
-                Collection<ParserModule> modules = parserModuleManager.getParserModules();
+                DocumentFileScanner scanner = new DocumentFileScanner( siteDirectory, index );
+                List<ParserModule> modules = new ArrayList<ParserModule>();
+                List<File> moduleBasedirs = new ArrayList<File>();
+
                 // use every Doxia parser module
-                for ( ParserModule module : modules )
+                for ( ParserModule module : parserModuleManager.getParserModules() )
                 {
-                    File moduleBasedir = new File( siteDirectory, module.getSourceDirectory() );
-
-                    String excludes = ( moduleExcludes == null ) ? null : moduleExcludes.get( module.getParserId() );
+                    if ( ArrayUtils.isNotEmpty( module.getExtensions() ) )
+                    {
+                        String excludes =
+                            ( moduleExcludes == null ) ? null : moduleExcludes.get( module.getParserId() );
 
-                    addModuleFiles( siteRenderingContext.getRootDirectory(), moduleBasedir, module, excludes, files,
-                                    editable );
+                        scanner.addDirectory( module.getSourceDirectory(), excludes );
+                        modules.add( module );
+                        moduleBasedirs.add( new File( siteDirectory, module.getSourceDirectory() ) );
+                    }
                 }
+
+                scanners.add( scanner );
+                scannedModules.add( modules );
+                scannedDirectories.add( moduleBasedirs );
             }
         }
 
@@ -202,40 +268,178 @@ public class DefaultSiteRenderer
             {
                 ParserModule parserModule = parserModuleManager.getParserModule( module.getParserId() );
 
-                String excludes = ( moduleExcludes == null ) ? null : moduleExcludes.get( module.getParserId() );
+                if ( ArrayUtils.isNotEmpty( parserModule.getExtensions() ) )
+                {
+                    String excludes = ( moduleExcludes == null ) ? null : moduleExcludes.get( module.getParserId() );
+
+                    DocumentFileScanner scanner = new DocumentFileScanner( module.getBasedir(), index );
+                    scanner.addDirectory( "", excludes );
 
-                addModuleFiles( siteRenderingContext.getRootDirectory(), module.getBasedir(), parserModule, excludes,
-                                files, editable );
+                    scanners.add( scanner );
+                    scannedModules.add( Collections.singletonList( parserModule ) );
+                    scannedDirectories.add( Collections.singletonList( module.getBasedir() ) );
+                }
             }
             catch ( ParserModuleNotFoundException e )
             {
                 throw new RendererException( "Unable to find module: " + e.getMessage(), e );
             }
         }
+
+        List<List<List<String>>> scans = scan( scanners );
+
+        if ( index != null )
+        {
+            index.store();
+        }
+
+        // register documents sequentially, in scanners order, to keep documents and duplicates detection order
+        for ( int i = 0; i < scanners.size(); i++ )
+        {
+            List<ParserModule> modules = scannedModules.get( i );
+            List<List<String>> fileNames = scans.get( i );
+
+            for ( int j = 0; j < modules.size(); j++ )
+            {
+                addModuleFiles( siteRenderingContext.getRootDirectory(), scannedDirectories.get( i ).get( j ),
+                                modules.get( j ), fileNames.get( j ), files, caseInsensitiveKeys, editable );
+            }
+        }
+
+        long time = System.nanoTime() - start;
+        for ( RenderingListener listener : getRenderingListeners( siteRenderingContext ) )
+        {
+            listener.documentsLocated( siteRenderingContext, files.size(), time );
+        }
+
         return files;
     }
 
-    private List<String> filterExtensionIgnoreCase( List<String> fileNames, String extension )
+    private static List<RenderingListener> getRenderingListeners( SiteRenderingContext siteRenderingContext )
+    {
+        RenderingReport report = siteRenderingContext.getRenderingReport();
+        if ( report == null )
+        {
+            return siteRenderingContext.getRenderingListeners();
+        }
+
+        List<RenderingListener> listeners =
+            new ArrayList<RenderingListener>( siteRenderingContext.getRenderingListeners() );
+        listeners.add( report );
+        return listeners;
+    }
+
+    /**
+     * Run document file scanners, in parallel when there are many.
+     *
+     * @param scanners the scanners
+     * @return the scanners results, in scanners order
+     */
+    private List<List<List<String>>> scan( List<DocumentFileScanner> scanners )
+        throws IOException, RendererException
     {
-        List<String> filtered = new LinkedList<String>( fileNames );
-        for ( Iterator<String> it = filtered.iterator(); it.hasNext(); )
+        List<List<List<String>>> scans = new ArrayList<List<List<String>>>( scanners.size() );
+
+        if ( scanners.size() < 2 )
         {
-            String name = it.next();
+            for ( DocumentFileScanner scanner : scanners )
+            {
+                scans.add( scanner.call() );
+            }
+            return scans;
+        }
+
+        int threads = Math.min( scanners.size(), Runtime.getRuntime().availableProcessors() );
+        ExecutorService executor = Executors.newFixedThreadPool( threads );
 
-            // Take care of extension case
-            if ( !endsWithIgnoreCase( name, extension ) )
+        try
+        {
+            for ( Future<List<List<String>>> scan : executor.invokeAll( scanners ) )
+            {
+                scans.add( scan.get() );
+            }
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
             {
-                it.remove();
+                throw (IOException) e.getCause();
+            }
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RendererException( "Error while locating document files: " + e.getCause().getMessage(),
+                                         e.getCause() );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new RendererException( "Interrupted while locating document files", e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+
+        return scans;
+    }
+
+    /**
+     * Group file names by extension in one pass: for every extension, documents with this extension come first,
+     * then <code>*.&lt;extension&gt;.vm</code> Velocity documents, each in file names order.
+     *
+     * @param fileNames the file names
+     * @param extensions the extensions
+     * @return the file names for each extension, in extensions order
+     */
+    static List<List<String>> groupByExtensionIgnoreCase( List<String> fileNames, String[] extensions )
+    {
+        String[] suffixes = new String[extensions.length];
+        String[] velocitySuffixes = new String[extensions.length];
+        List<List<String>> docs = new ArrayList<List<String>>( extensions.length );
+        List<List<String>> velocityDocs = new ArrayList<List<String>>( extensions.length );
+
+        for ( int i = 0; i < extensions.length; i++ )
+        {
+            suffixes[i] = "." + extensions[i];
+            velocitySuffixes[i] = suffixes[i] + ".vm";
+            docs.add( new ArrayList<String>() );
+            velocityDocs.add( new ArrayList<String>() );
+        }
+
+        for ( String name : fileNames )
+        {
+            for ( int i = 0; i < extensions.length; i++ )
+            {
+                // Take care of extension case
+                if ( endsWithIgnoreCase( name, suffixes[i] ) )
+                {
+                    docs.get( i ).add( name );
+                }
+
+                // *.<extension>.vm
+                if ( endsWithIgnoreCase( name, velocitySuffixes[i] ) )
+                {
+                    velocityDocs.get( i ).add( name );
+                }
             }
         }
-        return filtered;
+
+        for ( int i = 0; i < extensions.length; i++ )
+        {
+            docs.get( i ).addAll( velocityDocs.get( i ) );
+        }
+
+        return docs;
     }
 
-    private void addModuleFiles( File rootDir, File moduleBasedir, ParserModule module, String excludes,
-                                 Map<String, DocumentRenderer> files, boolean editable )
+    private void addModuleFiles( File rootDir, File moduleBasedir, ParserModule module, List<String> allFiles,
+                                 Map<String, DocumentRenderer> files, Map<String, List<String>> caseInsensitiveKeys,
+                                 boolean editable )
             throws IOException, RendererException
     {
-        if ( !moduleBasedir.exists() || ArrayUtils.isEmpty( module.getExtensions() ) )
+        if ( allFiles.isEmpty() )
         {
             return;
         }
@@ -243,20 +447,15 @@ public class DefaultSiteRenderer
         String moduleRelativePath =
             PathTool.getRelativeFilePath( rootDir.getAbsolutePath(), moduleBasedir.getAbsolutePath() );
 
-        List<String> allFiles = FileUtils.getFileNames( moduleBasedir, "**/*.*", excludes, false );
-
-        for ( String extension : module.getExtensions() )
-        {
-            String fullExtension = "." + extension;
-
-            List<String> docs = filterExtensionIgnoreCase( allFiles, fullExtension );
+        String[] extensions = module.getExtensions();
 
-            // *.<extension>.vm
-            List<String> velocityFiles = filterExtensionIgnoreCase( allFiles, fullExtension + ".vm" );
+        List<List<String>> docsByExtension = groupByExtensionIgnoreCase( allFiles, extensions );
 
-            docs.addAll( velocityFiles );
+        for ( int i = 0; i < extensions.length; i++ )
+        {
+            String extension = extensions[i];
 
-            for ( String doc : docs )
+            for ( String doc : docsByExtension.get( i ) )
             {
                 RenderingContext context = new RenderingContext( moduleBasedir, moduleRelativePath, doc,
                                                                  module.getParserId(), extension, editable );
@@ -284,28 +483,34 @@ public class DefaultSiteRenderer
                 // -----------------------------------------------------------------------
                 // Handle key without case differences
                 // -----------------------------------------------------------------------
-                for ( Map.Entry<String, DocumentRenderer> entry : files.entrySet() )
+                String caseInsensitiveKey = key.toLowerCase( Locale.ENGLISH );
+                List<String> sameKeys = caseInsensitiveKeys.get( caseInsensitiveKey );
+                if ( sameKeys == null )
                 {
-                    if ( entry.getKey().equalsIgnoreCase( key ) )
-                    {
-                        RenderingContext originalContext = entry.getValue().getRenderingContext();
+                    sameKeys = new ArrayList<String>( 1 );
+                    caseInsensitiveKeys.put( caseInsensitiveKey, sameKeys );
+                }
 
-                        File originalDoc = new File( originalContext.getBasedir(), originalContext.getInputName() );
+                for ( String sameKey : sameKeys )
+                {
+                    RenderingContext originalContext = files.get( sameKey ).getRenderingContext();
 
-                        if ( Os.isFamily( Os.FAMILY_WINDOWS ) )
-                        {
-                            throw new RendererException( "File '" + module.getSourceDirectory() + File.separator
-                                + doc + "' clashes with existing '" + originalDoc + "'." );
-                        }
+                    File originalDoc = new File( originalContext.getBasedir(), originalContext.getInputName() );
 
-                        if ( getLogger().isWarnEnabled() )
-                        {
-                            getLogger().warn( "File '" + module.getSourceDirectory() + File.separator + doc
-                                + "' could clash with existing '" + originalDoc + "'." );
-                        }
+                    if ( Os.isFamily( Os.FAMILY_WINDOWS ) )
+                    {
+                        throw new RendererException( "File '" + module.getSourceDirectory() + File.separator
+                            + doc + "' clashes with existing '" + originalDoc + "'." );
+                    }
+
+                    if ( getLogger().isWarnEnabled() )
+                    {
+                        getLogger().warn( "File '" + module.getSourceDirectory() + File.separator + doc
+                            + "' could clash with existing '" + originalDoc + "'." );
                     }
                 }
 
+                sameKeys.add( key );
                 files.put( key, new DoxiaDocumentRenderer( context ) );
             }
         }
@@ -316,101 +521,486 @@ public class DefaultSiteRenderer
                         File outputDirectory )
         throws RendererException, IOException
     {
-        for ( DocumentRenderer docRenderer : documents )
+        RenderManifest manifest = null;
+        if ( siteRenderingContext.isIncrementalRendering() )
         {
-            RenderingContext renderingContext = docRenderer.getRenderingContext();
+            manifest = RenderManifest.load( outputDirectory, getSiteFingerprint( siteRenderingContext ) );
+        }
+        siteRenderingContext.setRenderManifest( manifest );
 
-            File outputFile = new File( outputDirectory, docRenderer.getOutputName() );
+        try
+        {
+            int threads = siteRenderingContext.getRenderingThreads();
 
-            File inputFile = new File( renderingContext.getBasedir(), renderingContext.getInputName() );
+            if ( threads > 1 && documents.size() > 1 )
+            {
+                renderParallel( documents, siteRenderingContext, outputDirectory, threads );
+            }
+            else
+            {
+                for ( DocumentRenderer docRenderer : documents )
+                {
+                    render( docRenderer, siteRenderingContext, outputDirectory );
+                }
+            }
+        }
+        finally
+        {
+            siteRenderingContext.setRenderManifest( null );
 
-            boolean modified = !outputFile.exists() || ( inputFile.lastModified() > outputFile.lastModified() )
-                || ( siteRenderingContext.getDecoration().getLastModified() > outputFile.lastModified() );
+            if ( manifest != null )
+            {
+                manifest.store();
+            }
+
+            writeRenderingReport( siteRenderingContext );
+        }
+    }
+
+    private void writeRenderingReport( SiteRenderingContext siteRenderingContext )
+    {
+        RenderingReport report = siteRenderingContext.getRenderingReport();
+        if ( report != null )
+        {
+            File reportFile = siteRenderingContext.getRenderingReportFile();
+            try
+            {
+                report.write( reportFile );
+            }
+            catch ( IOException e )
+            {
+                getLogger().warn( "Unable to write rendering report " + reportFile + ": " + e.getMessage() );
+            }
+        }
+    }
+
+    /**
+     * Compute the fingerprint of everything that documents output depends on, apart from their own source.
+     */
+    private String getSiteFingerprint( SiteRenderingContext siteRenderingContext )
+        throws IOException
+    {
+        Fingerprint fingerprint = new Fingerprint();
 
-            if ( modified || docRenderer.isOverwrite() )
+        Package p = DefaultSiteRenderer.class.getPackage();
+        fingerprint.add( ( p == null ) ? null : p.getImplementationVersion() );
+
+        Artifact skin = siteRenderingContext.getSkin();
+        if ( skin != null && skin.getFile() != null && skin.getFile().isFile() )
+        {
+            fingerprint.add( skin.getId() ).add( skin.getFile() );
+        }
+        else
+        {
+            addTemplate( fingerprint, siteRenderingContext );
+        }
+        fingerprint.add( siteRenderingContext.getTemplateName() );
+
+        StringWriter decoration = new StringWriter();
+        if ( siteRenderingContext.getDecoration() != null )
+        {
+            new DecorationXpp3Writer().write( decoration, siteRenderingContext.getDecoration() );
+        }
+        fingerprint.add( decoration.toString() );
+
+        fingerprint.add( String.valueOf( siteRenderingContext.getLocale() ) );
+        fingerprint.add( String.valueOf( siteRenderingContext.getSiteLocales() ) );
+        fingerprint.add( siteRenderingContext.getInputEncoding() );
+        fingerprint.add( siteRenderingContext.getOutputEncoding() );
+
+        Date publishDate = siteRenderingContext.getPublishDate();
+        fingerprint.add( ( publishDate == null ) ? null : String.valueOf( publishDate.getTime() ) );
+
+        Map<String, ?> templateProperties = siteRenderingContext.getTemplateProperties();
+        if ( templateProperties != null )
+        {
+            for ( Map.Entry<String, Object> entry : new TreeMap<String, Object>( templateProperties ).entrySet() )
+            {
+                fingerprint.add( entry.getKey() ).add( String.valueOf( entry.getValue() ) );
+            }
+        }
+
+        return fingerprint.digest();
+    }
+
+    /**
+     * Add the content of a site template that doesn't come from a skin to a fingerprint. When the template is a file,
+     * like a local <code>site.vm</code>, every Velocity file of its directory is added, since the template may parse
+     * them or use their macros.
+     */
+    private static void addTemplate( Fingerprint fingerprint, SiteRenderingContext siteRenderingContext )
+        throws IOException
+    {
+        ClassLoader classLoader = siteRenderingContext.getTemplateClassLoader();
+        if ( classLoader == null )
+        {
+            classLoader = Thread.currentThread().getContextClassLoader();
+        }
+
+        URL template = ( classLoader == null || siteRenderingContext.getTemplateName() == null ) ? null
+                        : classLoader.getResource( siteRenderingContext.getTemplateName() );
+
+        if ( template == null )
+        {
+            // not found: rendering will fail
+            return;
+        }
+
+        if ( "file".equals( template.getProtocol() ) )
+        {
+            File[] files = FileUtils.toFile( template ).getParentFile().listFiles();
+            if ( files != null )
             {
-                if ( !outputFile.getParentFile().exists() )
+                Arrays.sort( files );
+                for ( File file : files )
                 {
-                    outputFile.getParentFile().mkdirs();
+                    if ( file.isFile() && endsWithIgnoreCase( file.getName(), ".vm" ) )
+                    {
+                        fingerprint.add( file.getName() ).add( file );
+                    }
                 }
+            }
+        }
+        else
+        {
+            fingerprint.add( template );
+        }
+    }
+
+    /**
+     * Render documents with a pool of threads: Doxia source documents are independent from each other and are rendered
+     * in parallel, other documents (like reports) are rendered on the calling thread, since they are not expected to be
+     * thread-safe. Every failure is reported for its document, then the first one is rethrown.
+     */
+    private void renderParallel( Collection<DocumentRenderer> documents,
+                                 final SiteRenderingContext siteRenderingContext, final File outputDirectory,
+                                 int threads )
+        throws RendererException, IOException
+    {
+        getLogger().debug( "Rendering " + documents.size() + " documents with " + threads + " threads" );
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, documents.size() ) );
 
-                if ( getLogger().isDebugEnabled() )
+        try
+        {
+            Map<DocumentRenderer, Future<Void>> tasks = new LinkedHashMap<DocumentRenderer, Future<Void>>();
+            List<DocumentRenderer> serialDocuments = new ArrayList<DocumentRenderer>();
+
+            for ( final DocumentRenderer docRenderer : documents )
+            {
+                if ( docRenderer instanceof DoxiaDocumentRenderer )
                 {
-                    getLogger().debug( "Generating " + outputFile );
+                    tasks.put( docRenderer, executor.submit( new Callable<Void>()
+                    {
+                        public Void call()
+                            throws RendererException, IOException
+                        {
+                            render( docRenderer, siteRenderingContext, outputDirectory );
+                            return null;
+                        }
+                    } ) );
+                }
+                else
+                {
+                    serialDocuments.add( docRenderer );
                 }
+            }
+
+            Throwable failure = null;
 
-                Writer writer = null;
+            for ( DocumentRenderer docRenderer : serialDocuments )
+            {
                 try
                 {
-                    if ( !docRenderer.isExternalReport() )
-                    {
-                        writer = WriterFactory.newWriter( outputFile, siteRenderingContext.getOutputEncoding() );
-                    }
-                    docRenderer.renderDocument( writer, this, siteRenderingContext );
+                    render( docRenderer, siteRenderingContext, outputDirectory );
                 }
-                finally
+                catch ( RendererException e )
+                {
+                    failure = reportFailure( docRenderer, e, failure );
+                }
+                catch ( IOException e )
+                {
+                    failure = reportFailure( docRenderer, e, failure );
+                }
+            }
+
+            for ( Map.Entry<DocumentRenderer, Future<Void>> task : tasks.entrySet() )
+            {
+                try
+                {
+                    task.getValue().get();
+                }
+                catch ( ExecutionException e )
+                {
+                    failure = reportFailure( task.getKey(), e.getCause(), failure );
+                }
+                catch ( InterruptedException e )
                 {
-                    IOUtil.close( writer );
+                    Thread.currentThread().interrupt();
+                    throw new RendererException( "Interrupted while rendering documents", e );
                 }
             }
+
+            if ( failure instanceof RendererException )
+            {
+                throw (RendererException) failure;
+            }
+            else if ( failure instanceof IOException )
+            {
+                throw (IOException) failure;
+            }
+            else if ( failure instanceof RuntimeException )
+            {
+                throw (RuntimeException) failure;
+            }
+            else if ( failure instanceof Error )
+            {
+                throw (Error) failure;
+            }
+            else if ( failure != null )
+            {
+                throw new RendererException( failure.getMessage(), failure );
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    private Throwable reportFailure( DocumentRenderer docRenderer, Throwable t, Throwable previousFailure )
+    {
+        getLogger().error( "Error rendering " + docRenderer.getOutputName() + ": " + t.getMessage() );
+
+        return ( previousFailure == null ) ? t : previousFailure;
+    }
+
+    private void render( DocumentRenderer docRenderer, SiteRenderingContext siteRenderingContext,
+                         File outputDirectory )
+        throws RendererException, IOException
+    {
+        RenderingContext renderingContext = docRenderer.getRenderingContext();
+
+        String outputName = docRenderer.getOutputName();
+
+        File outputFile = new File( outputDirectory, outputName );
+
+        File inputFile = new File( renderingContext.getBasedir(), renderingContext.getInputName() );
+
+        RenderManifest manifest = siteRenderingContext.getRenderManifest();
+
+        String fingerprint = null;
+
+        boolean modified;
+
+        if ( manifest != null && inputFile.isFile() )
+        {
+            if ( !outputFile.exists() || docRenderer.isOverwrite() )
+            {
+                manifest.remove( outputName );
+            }
+
+            if ( renderingContext.getAttribute( "velocity" ) != null )
+            {
+                // Velocity processed content fingerprint is checked during document rendering
+                modified = true;
+            }
             else
             {
-                if ( getLogger().isDebugEnabled() )
+                fingerprint = manifest.getFingerprint( outputName, inputFile );
+
+                modified = !manifest.isUpToDate( outputName, fingerprint );
+
+                if ( modified )
                 {
-                    getLogger().debug( inputFile + " unchanged, not regenerating..." );
+                    // don't keep previous fingerprint in case of rendering failure
+                    manifest.remove( outputName );
                 }
             }
         }
+        else
+        {
+            modified = !outputFile.exists() || ( inputFile.lastModified() > outputFile.lastModified() )
+                || ( siteRenderingContext.getDecoration().getLastModified() > outputFile.lastModified() );
+        }
+
+        if ( modified || docRenderer.isOverwrite() )
+        {
+            if ( !outputFile.getParentFile().exists() )
+            {
+                outputFile.getParentFile().mkdirs();
+            }
+
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug( "Generating " + outputFile );
+            }
+
+            Artifact skin = siteRenderingContext.getSkin();
+            DocumentRenderingMetrics metrics = new DocumentRenderingMetrics( outputName,
+                ( skin == null ) ? siteRenderingContext.getTemplateName() : skin.getId() );
+            long start = System.nanoTime();
+            long allocated = DocumentRenderingMetrics.currentThreadAllocatedBytes();
+
+            Writer writer = null;
+            renderingContext.setMetrics( metrics );
+            try
+            {
+                if ( !docRenderer.isExternalReport() )
+                {
+                    // with a render manifest, output is left untouched if document rendering finds it up to date
+                    if ( siteRenderingContext.isSkipUnchangedOutput() )
+                    {
+                        writer = new ChangedContentFileWriter( outputFile, siteRenderingContext.getOutputEncoding() );
+                    }
+                    else if ( manifest != null )
+                    {
+                        writer = new DeferredFileWriter( outputFile, siteRenderingContext.getOutputEncoding() );
+                    }
+                    else
+                    {
+                        // never write through a hard link to an extracted skin resource
+                        outputFile.delete();
+                        writer = WriterFactory.newWriter( outputFile, siteRenderingContext.getOutputEncoding() );
+                    }
+                }
+                docRenderer.renderDocument( writer, this, siteRenderingContext );
+
+                if ( writer != null )
+                {
+                    long writeStart = System.nanoTime();
+
+                    // output may be written on close: don't ignore failures
+                    writer.close();
+
+                    metrics.add( DocumentRenderingMetrics.Phase.WRITE, System.nanoTime() - writeStart );
+                    metrics.setOutputSize( outputFile.length() );
+                }
+            }
+            finally
+            {
+                IOUtil.close( writer );
+
+                renderingContext.setMetrics( null );
+            }
+
+            metrics.setTotalTime( System.nanoTime() - start );
+            if ( allocated >= 0 )
+            {
+                metrics.setAllocatedBytes( DocumentRenderingMetrics.currentThreadAllocatedBytes() - allocated );
+            }
+            for ( RenderingListener listener : getRenderingListeners( siteRenderingContext ) )
+            {
+                listener.documentRendered( siteRenderingContext, metrics );
+            }
+
+            if ( fingerprint != null )
+            {
+                manifest.setUpToDate( outputName, fingerprint );
+            }
+        }
+        else
+        {
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug( inputFile + " unchanged, not regenerating..." );
+            }
+        }
     }
 
     /** {@inheritDoc} */
-    public void renderDocument( Writer writer, RenderingContext docRenderingContext, SiteRenderingContext siteContext )
+    public void renderDocument( final Writer writer, RenderingContext docRenderingContext,
+                                final SiteRenderingContext siteContext )
             throws RendererException, FileNotFoundException, UnsupportedEncodingException
     {
-        SiteRendererSink sink = new SiteRendererSink( docRenderingContext );
+        // metrics are reported only for documents rendered with render()
+        final DocumentRenderingMetrics metrics = ( docRenderingContext.getMetrics() != null )
+                        ? docRenderingContext.getMetrics()
+                        : new DocumentRenderingMetrics( docRenderingContext.getOutputName(), null );
+
+        final SiteRendererSink sink;
+        StreamedBodyWriter streamedBody = null;
+        if ( siteContext.isStreamBody() )
+        {
+            // body streamed into the site template while parsing, instead of merged once parsed
+            streamedBody = new StreamedBodyWriter( docRenderingContext.getInputName() );
+            sink = new SiteRendererSink( docRenderingContext, streamedBody );
+            streamedBody.setMerge( new StreamedBodyWriter.Merge()
+            {
+                private Context context;
+
+                public void prepare( Object bodyContent )
+                {
+                    context = createSiteTemplateVelocityContext( sink, siteContext );
+                    // the sink list is not shared with the merge thread
+                    context.put( "authors", new ArrayList<String>( sink.getAuthors() ) );
+                    context.put( "bodyContent", bodyContent );
+                }
+
+                public void merge()
+                    throws RendererException
+                {
+                    long start = System.nanoTime();
+
+                    mergeDocumentIntoSite( writer, sink, context, siteContext );
+
+                    metrics.add( DocumentRenderingMetrics.Phase.TEMPLATE_MERGE, System.nanoTime() - start );
+                }
+            } );
+        }
+        else
+        {
+            sink = new SiteRendererSink( docRenderingContext, siteContext.getBodySpillThreshold() );
+        }
 
         File doc = new File( docRenderingContext.getBasedir(), docRenderingContext.getInputName() );
 
+        RenderManifest manifest = siteContext.getRenderManifest();
+
+        Fingerprint velocityFingerprint = null;
+        String fingerprint = null;
+
         Reader reader = null;
+        VelocityMergeReader velocityReader = null;
+        XmlValidatingReader validatingReader = null;
+        boolean parsed = false;
         try
         {
             String resource = doc.getAbsolutePath();
 
             Parser parser = doxia.getParser( docRenderingContext.getParserId() );
-            // DOXIASITETOOLS-146 don't render comments from source markup
-            parser.setEmitComments( false );
 
             // TODO: DOXIA-111: the filter used here must be checked generally.
             if ( docRenderingContext.getAttribute( "velocity" ) != null )
             {
                 getLogger().debug( "Processing Velocity for " + docRenderingContext.getDoxiaSourcePath() );
-                try
-                {
-                    Context vc = createDocumentVelocityContext( docRenderingContext, siteContext );
 
-                    StringWriter sw = new StringWriter();
+                Context vc = createDocumentVelocityContext( docRenderingContext, siteContext );
 
-                    velocity.getEngine().mergeTemplate( resource, siteContext.getInputEncoding(), vc, sw );
+                List<Writer> copies = new ArrayList<Writer>( 2 );
 
-                    String doxiaContent = sw.toString();
-
-                    if ( siteContext.getProcessedContentOutput() != null )
-                    {
-                        // save Velocity processing result, ie the Doxia content that will be parsed after
-                        saveVelocityProcessedContent( docRenderingContext, siteContext, doxiaContent );
-                    }
-
-                    reader = new StringReader( doxiaContent );
+                // save Velocity processing result, ie the Doxia content that will be parsed after
+                if ( siteContext.getProcessedContentOutput() != null )
+                {
+                    copies.add( newVelocityProcessedContentWriter( docRenderingContext, siteContext ) );
                 }
-                catch ( VelocityException e )
+
+                if ( manifest != null )
                 {
-                    throw new RendererException( "Error parsing " + docRenderingContext.getDoxiaSourcePath()
-                        + " as a Velocity template: " + e.getMessage(), e );
+                    // fingerprint of the Velocity processing result, computed while it is parsed
+                    velocityFingerprint = manifest.newFingerprint( docRenderingContext.getOutputName() );
+                    copies.add( velocityFingerprint.newValueWriter() );
                 }
 
+                // Velocity processing result is streamed to the parser, never kept whole in memory
+                velocityReader = new VelocityMergeReader( pipelineExecutor, velocity.getEngine(), resource,
+                                                          siteContext.getInputEncoding(), vc, copies );
+                reader = velocityReader;
+
                 if ( parser.getType() == Parser.XML_TYPE && siteContext.isValidate() )
                 {
-                    reader = validate( reader, resource );
+                    validatingReader = validate( reader, resource );
+                    reader = validatingReader;
                 }
             }
             else
@@ -421,19 +1011,68 @@ public class DefaultSiteRenderer
                         reader = ReaderFactory.newXmlReader( doc );
                         if ( siteContext.isValidate() )
                         {
-                            reader = validate( reader, resource );
+                            validatingReader = validate( reader, resource );
+                            reader = validatingReader;
                         }
                         break;
 
-                    case Parser.TXT_TYPE:
-                    case Parser.UNKNOWN_TYPE:
-                    default:
-                        reader = ReaderFactory.newReader( doc, siteContext.getInputEncoding() );
+                    case Parser.TXT_TYPE:
+                    case Parser.UNKNOWN_TYPE:
+                    default:
+                        reader = ReaderFactory.newReader( doc, siteContext.getInputEncoding() );
+                }
+            }
+            sink.enableLogging( new PlexusLoggerWrapper( getLogger() ) );
+
+            long start = System.nanoTime();
+
+            // Doxia parsers are stateful singletons: every rendering thread uses its own instance
+            Parser ownParser = getParserPool().acquire( parser );
+            if ( ownParser != null )
+            {
+                try
+                {
+                    parse( ownParser, reader, sink );
+                }
+                finally
+                {
+                    getParserPool().release( ownParser );
+                }
+            }
+            else
+            {
+                // not instantiable: serialize the use of the singleton when documents are rendered in parallel
+                synchronized ( parser )
+                {
+                    parse( parser, reader, sink );
+                }
+            }
+
+            metrics.add( DocumentRenderingMetrics.Phase.PARSING, System.nanoTime() - start );
+
+            if ( validatingReader != null )
+            {
+                // validation runs while parsing: wait for its end
+                validatingReader.checkValid();
+
+                metrics.add( DocumentRenderingMetrics.Phase.VALIDATION, validatingReader.getValidationTime() );
+            }
+
+            if ( velocityReader != null )
+            {
+                // wait for the end of Velocity processing, even if the parser didn't read the whole content
+                velocityReader.close();
+                checkVelocityFailure( velocityReader, docRenderingContext, doc );
+
+                metrics.add( DocumentRenderingMetrics.Phase.VELOCITY, velocityReader.getProcessingTime() );
+
+                if ( velocityFingerprint != null && velocityReader.isComplete() )
+                {
+                    fingerprint = velocityFingerprint.digest();
                 }
             }
-            sink.enableLogging( new PlexusLoggerWrapper( getLogger() ) );
 
-            doxia.parse( reader, docRenderingContext.getParserId(), sink );
+            parsed = true;
         }
         catch ( ParserNotFoundException e )
         {
@@ -441,27 +1080,167 @@ public class DefaultSiteRenderer
         }
         catch ( ParseException e )
         {
+            checkVelocityFailure( velocityReader, docRenderingContext, doc );
+            ParseException failure = getValidationFailure( validatingReader, e );
             throw new RendererException( "Error parsing '"
-                    + doc + "': line [" + e.getLineNumber() + "] " + e.getMessage(), e );
+                    + doc + "': line [" + failure.getLineNumber() + "] " + failure.getMessage(), failure );
+        }
+        catch ( VelocityException e )
+        {
+            throw new RendererException( "Error parsing " + docRenderingContext.getDoxiaSourcePath()
+                + " as a Velocity template: " + e.getMessage(), e );
         }
         catch ( IOException e )
         {
+            checkVelocityFailure( velocityReader, docRenderingContext, doc );
+            ParseException failure = getValidationFailure( validatingReader, null );
+            if ( failure != null )
+            {
+                throw new RendererException( "Error parsing '"
+                    + doc + "': line [" + failure.getLineNumber() + "] " + failure.getMessage(), failure );
+            }
             throw new RendererException( "IOException when processing '" + doc + "'", e );
         }
         finally
         {
             sink.flush();
 
-            sink.close();
+            if ( streamedBody != null || !parsed )
+            {
+                // a parsed body is kept until merged into the site template
+                sink.close();
+            }
 
             IOUtil.close( reader );
+            IOUtil.close( velocityReader );
+
+            if ( streamedBody != null )
+            {
+                // body is complete: let the merge end, even in case of failure
+                streamedBody.await();
+            }
+        }
+
+        if ( streamedBody != null )
+        {
+            streamedBody.finish();
+        }
+        else
+        {
+            try
+            {
+                if ( fingerprint != null )
+                {
+                    String outputName = docRenderingContext.getOutputName();
+
+                    if ( manifest.isUpToDate( outputName, fingerprint ) )
+                    {
+                        getLogger().debug( docRenderingContext.getDoxiaSourcePath()
+                            + " unchanged after Velocity processing, not regenerating..." );
+                        return;
+                    }
+
+                    // don't keep previous fingerprint in case of rendering failure
+                    manifest.remove( outputName );
+                }
+
+                long start = System.nanoTime();
+
+                mergeDocumentIntoSite( writer, (DocumentContent) sink, siteContext );
+
+                metrics.add( DocumentRenderingMetrics.Phase.TEMPLATE_MERGE, System.nanoTime() - start );
+            }
+            finally
+            {
+                // deletes the temporary file of a spilled body
+                sink.close();
+            }
+        }
+
+        if ( fingerprint != null )
+        {
+            manifest.setUpToDate( docRenderingContext.getOutputName(), fingerprint );
+        }
+    }
+
+    private void parse( Parser parser, Reader reader, SiteRendererSink sink )
+        throws ParseException
+    {
+        parser.enableLogging( new PlexusLoggerWrapper( getLogger() ) );
+
+        // DOXIASITETOOLS-146 don't render comments from source markup
+        parser.setEmitComments( false );
+
+        parser.parse( reader, sink );
+    }
+
+    private synchronized ParserPool getParserPool()
+    {
+        if ( parserPool == null )
+        {
+            parserPool = new ParserPool( plexus );
+        }
+        return parserPool;
+    }
+
+    /**
+     * Get the validation failure of a document that failed to parse: like when the document was validated before being
+     * parsed, a validation error is reported ahead of the parsing error it may have caused.
+     *
+     * @return the validation failure, or <code>parseFailure</code> if the document was not validated or is valid
+     */
+    private static ParseException getValidationFailure( XmlValidatingReader validatingReader,
+                                                        ParseException parseFailure )
+    {
+        if ( validatingReader != null )
+        {
+            try
+            {
+                validatingReader.checkValid();
+            }
+            catch ( ParseException e )
+            {
+                return e;
+            }
+            catch ( IOException e )
+            {
+                // content not readable: the parsing failure is reported
+            }
         }
 
-        mergeDocumentIntoSite( writer, (DocumentContent) sink, siteContext );
+        return parseFailure;
+    }
+
+    /**
+     * Report a Velocity processing failure, that may have caused a parsing failure.
+     */
+    private void checkVelocityFailure( VelocityMergeReader velocityReader, RenderingContext docRenderingContext,
+                                       File doc )
+        throws RendererException
+    {
+        Throwable failure = ( velocityReader == null ) ? null : velocityReader.getFailure();
+
+        if ( failure instanceof VelocityException )
+        {
+            throw new RendererException( "Error parsing " + docRenderingContext.getDoxiaSourcePath()
+                + " as a Velocity template: " + failure.getMessage(), (VelocityException) failure );
+        }
+        else if ( failure instanceof IOException )
+        {
+            throw new RendererException( "IOException when processing '" + doc + "'", (IOException) failure );
+        }
+        else if ( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        else if ( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
     }
 
-    private void saveVelocityProcessedContent( RenderingContext docRenderingContext, SiteRenderingContext siteContext,
-                                               String doxiaContent )
+    private Writer newVelocityProcessedContentWriter( RenderingContext docRenderingContext,
+                                                      SiteRenderingContext siteContext )
         throws IOException
     {
         if ( !siteContext.getProcessedContentOutput().exists() )
@@ -479,16 +1258,48 @@ public class DefaultSiteRenderer
             outputParent.mkdirs();
         }
 
-        FileUtils.fileWrite( outputFile, siteContext.getInputEncoding(), doxiaContent );
+        return WriterFactory.newWriter( outputFile, siteContext.getInputEncoding() );
     }
 
     /**
      * Creates a Velocity Context with all generic tools configured wit the site rendering context.
+     * The tool manager is configured once per site rendering context: only request scoped tools are created
+     * for every new context.
      *
      * @param siteRenderingContext the site rendering context
      * @return a Velocity tools managed context
      */
     protected Context createToolManagedVelocityContext( SiteRenderingContext siteRenderingContext )
+    {
+        return getToolManager( siteRenderingContext ).createContext();
+    }
+
+    private ToolManager getToolManager( SiteRenderingContext siteRenderingContext )
+    {
+        synchronized ( siteRenderingContext )
+        {
+            ToolManager manager = siteRenderingContext.getToolManager();
+
+            if ( manager == null )
+            {
+                manager = createToolManager( siteRenderingContext );
+
+                siteRenderingContext.setToolManager( manager );
+            }
+
+            return manager;
+        }
+    }
+
+    /**
+     * Creates a Velocity tool manager with all generic tools configured with the site rendering context, and custom
+     * tools found in <code>META-INF/maven/site-tools.xml</code>.
+     *
+     * @param siteRenderingContext the site rendering context
+     * @return a configured Velocity tool manager
+     * @since 1.9.3
+     */
+    protected ToolManager createToolManager( SiteRenderingContext siteRenderingContext )
     {
         Locale locale = siteRenderingContext.getLocale();
         String dateFormat = siteRenderingContext.getDecoration().getPublishDate().getFormat();
@@ -521,14 +1332,15 @@ public class DefaultSiteRenderer
             config.addConfiguration( customConfig );
         }
 
-        ToolManager manager = new ToolManager( false, false );
+        ToolManager manager = new SiteToolManager( false, false );
         manager.configure( config );
 
-        return manager.createContext();
+        return manager;
     }
 
     /**
      * Create a Velocity Context for a Doxia document, containing every information about rendered document.
+     * Site wide values are computed once per site rendering context and shared by every document context.
      *
      * @param sink the site renderer sink for the document
      * @param siteRenderingContext the site rendering context
@@ -538,32 +1350,98 @@ public class DefaultSiteRenderer
                                                      SiteRenderingContext siteRenderingContext )
     {
         Context context = createToolManagedVelocityContext( siteRenderingContext );
+
+        Map<String, Object> siteValues = getSiteVelocityValues( siteRenderingContext );
+
         // ----------------------------------------------------------------------
         // Data objects
         // ----------------------------------------------------------------------
 
-        context.put( "relativePath", renderingContext.getRelativePath() );
+        putDocumentValue( context, siteValues, "relativePath", renderingContext.getRelativePath() );
 
         String currentFileName = renderingContext.getOutputName().replace( '\\', '/' );
-        context.put( "currentFileName", currentFileName );
+        putDocumentValue( context, siteValues, "currentFileName", currentFileName );
 
-        context.put( "alignedFileName", PathTool.calculateLink( currentFileName, renderingContext.getRelativePath() ) );
+        putDocumentValue( context, siteValues, "alignedFileName",
+                          PathTool.calculateLink( currentFileName, renderingContext.getRelativePath() ) );
 
-        context.put( "decoration", siteRenderingContext.getDecoration() );
+        Date currentDate = new Date();
+        putDocumentValue( context, siteValues, "currentDate", currentDate );
+        putDocumentValue( context, siteValues, "dateRevision",
+                          ( (DateFormat) DATE_REVISION_FORMAT.clone() ).format( currentDate ) );
 
-        Locale locale = siteRenderingContext.getLocale();
-        context.put( "locale", locale );
-        context.put( "supportedLocales", Collections.unmodifiableList( siteRenderingContext.getSiteLocales() ) );
+        if ( context instanceof SiteToolContext )
+        {
+            ( (SiteToolContext) context ).setSiteValues( siteValues );
+        }
+        else
+        {
+            for ( Map.Entry<String, Object> entry : siteValues.entrySet() )
+            {
+                context.put( entry.getKey(), entry.getValue() );
+            }
+        }
+
+        // date formats are not thread-safe: every document gets its own copy of the shared one
+        Object dateFormat = siteValues.get( "dateFormat" );
+        if ( dateFormat instanceof DateFormat )
+        {
+            context.put( "dateFormat", ( (DateFormat) dateFormat ).clone() );
+        }
+
+        return context;
+    }
+
+    /**
+     * Put a document value in the Velocity context, unless defined in site values (which contain template
+     * properties, that can override document values).
+     */
+    private static void putDocumentValue( Context context, Map<String, Object> siteValues, String key, Object value )
+    {
+        if ( !siteValues.containsKey( key ) )
+        {
+            context.put( key, value );
+        }
+    }
 
-        context.put( "currentDate", new Date() );
-        SimpleDateFormat sdf = new SimpleDateFormat( "yyyyMMdd" );
-        context.put( "dateRevision", sdf.format( new Date() ) );
+    private Map<String, Object> getSiteVelocityValues( SiteRenderingContext siteRenderingContext )
+    {
+        synchronized ( siteRenderingContext )
+        {
+            Map<String, Object> siteValues = siteRenderingContext.getSiteVelocityValues();
+
+            if ( siteValues == null )
+            {
+                siteValues = createSiteVelocityValues( siteRenderingContext );
+
+                siteRenderingContext.setSiteVelocityValues( siteValues );
+            }
+
+            return siteValues;
+        }
+    }
+
+    /**
+     * Create the Velocity values that are the same for every document of the site.
+     *
+     * @param siteRenderingContext the site rendering context
+     * @return an immutable map of site values
+     */
+    private Map<String, Object> createSiteVelocityValues( SiteRenderingContext siteRenderingContext )
+    {
+        Map<String, Object> values = new LinkedHashMap<String, Object>();
+
+        values.put( "decoration", siteRenderingContext.getDecoration() );
 
-        context.put( "publishDate", siteRenderingContext.getPublishDate() );
+        Locale locale = siteRenderingContext.getLocale();
+        values.put( "locale", locale );
+        values.put( "supportedLocales", Collections.unmodifiableList( siteRenderingContext.getSiteLocales() ) );
+
+        values.put( "publishDate", siteRenderingContext.getPublishDate() );
 
         PublishDate publishDate = siteRenderingContext.getDecoration().getPublishDate();
         DateFormat dateFormat = new SimpleDateFormat( publishDate.getFormat(), locale );
-        context.put( "dateFormat", dateFormat );
+        values.put( "dateFormat", dateFormat );
 
         // doxiaSiteRendererVersion
         InputStream inputStream = this.getClass().getResourceAsStream( "/META-INF/"
@@ -580,7 +1458,7 @@ public class DefaultSiteRenderer
         }
         else
         {
-            context.put( "doxiaSiteRendererVersion", properties.getProperty( "version" ) );
+            values.put( "doxiaSiteRendererVersion", properties.getProperty( "version" ) );
         }
 
         // Add user properties
@@ -590,7 +1468,7 @@ public class DefaultSiteRenderer
         {
             for ( Map.Entry<String, ?> entry : templateProperties.entrySet() )
             {
-                context.put( entry.getKey(), entry.getValue() );
+                values.put( entry.getKey(), entry.getValue() );
             }
         }
 
@@ -598,16 +1476,17 @@ public class DefaultSiteRenderer
         // Tools
         // ----------------------------------------------------------------------
 
-        context.put( "PathTool", new PathTool() );
+        values.put( "PathTool", new PathTool() );
 
-        context.put( "FileUtils", new FileUtils() );
+        values.put( "FileUtils", new FileUtils() );
 
-        context.put( "StringUtils", new StringUtils() );
+        values.put( "StringUtils", new StringUtils() );
 
-        context.put( "i18n", i18n );
+        values.put( "i18n", i18n );
 
-        context.put( "plexus", plexus );
-        return context;
+        values.put( "plexus", plexus );
+
+        return Collections.unmodifiableMap( values );
     }
 
     /**
@@ -653,7 +1532,15 @@ public class DefaultSiteRenderer
 
         context.put( "headContent", content.getHead() );
 
-        context.put( "bodyContent", content.getBody() );
+        if ( content instanceof SiteRendererSink && ( (SiteRendererSink) content ).isBodySpilled() )
+        {
+            // large body: streamed from its temporary file when rendered, instead of being loaded in memory
+            context.put( "bodyContent", new StreamedBodyContent( (SiteRendererSink) content ) );
+        }
+        else
+        {
+            context.put( "bodyContent", content.getBody() );
+        }
 
         // document date (got from Doxia Sink date() API)
         String documentDate = content.getDate();
@@ -670,8 +1557,7 @@ public class DefaultSiteRenderer
                 Date creationDate = new SimpleDateFormat( "yyyy-MM-dd" ).parse( documentDate );
 
                 context.put( "creationDate", creationDate );
-                SimpleDateFormat sdf = new SimpleDateFormat( "yyyyMMdd" );
-                context.put( "dateCreation", sdf.format( creationDate ) );
+                context.put( "dateCreation", ( (DateFormat) DATE_REVISION_FORMAT.clone() ).format( creationDate ) );
             }
             catch ( java.text.ParseException e )
             {
@@ -698,14 +1584,21 @@ public class DefaultSiteRenderer
     public void mergeDocumentIntoSite( Writer writer, DocumentContent content,
                                            SiteRenderingContext siteRenderingContext )
         throws RendererException
+    {
+        Context context = createSiteTemplateVelocityContext( content, siteRenderingContext );
+
+        mergeDocumentIntoSite( writer, content, context, siteRenderingContext );
+    }
+
+    private void mergeDocumentIntoSite( Writer writer, DocumentContent content, Context context,
+                                        SiteRenderingContext siteRenderingContext )
+        throws RendererException
     {
         String templateName = siteRenderingContext.getTemplateName();
 
         getLogger().debug( "Processing Velocity for template " + templateName + " on "
             + content.getRenderingContext().getInputName() );
 
-        Context context = createSiteTemplateVelocityContext( content, siteRenderingContext );
-
         ClassLoader old = null;
 
         if ( siteRenderingContext.getTemplateClassLoader() != null )
@@ -729,8 +1622,7 @@ public class DefaultSiteRenderer
                 SkinModel skinModel = siteRenderingContext.getSkinModel();
                 String encoding = ( skinModel == null ) ? null : skinModel.getEncoding();
 
-                template = ( encoding == null ) ? velocity.getEngine().getTemplate( templateName )
-                                : velocity.getEngine().getTemplate( templateName, encoding );
+                template = getTemplate( siteRenderingContext.getTemplateClassLoader(), templateName, encoding );
             }
             catch ( ParseErrorException pee )
             {
@@ -747,9 +1639,9 @@ public class DefaultSiteRenderer
 
             try
             {
-                StringWriter sw = new StringWriter();
-                template.merge( context, sw );
-                writer.write( sw.toString().replaceAll( "\r?\n", SystemUtils.LINE_SEPARATOR ) );
+                Writer out = new NewlineNormalizingWriter( writer, SystemUtils.LINE_SEPARATOR );
+                template.merge( context, out );
+                out.close();
             }
             catch ( VelocityException ve )
             {
@@ -794,30 +1686,57 @@ public class DefaultSiteRenderer
 
         context.setSkin( skin );
 
+        SkinLoaderCache.LoadedSkin loadedSkin = loadSkin( skin );
+
+        if ( loadedSkin.getClassLoader() != null )
+        {
+            context.setTemplateName( SKIN_TEMPLATE_LOCATION );
+            context.setTemplateClassLoader( loadedSkin.getClassLoader() );
+        }
+        else
+        {
+            context.setTemplateName( DEFAULT_TEMPLATE );
+            context.setTemplateClassLoader( getClass().getClassLoader() );
+            context.setUsingDefaultTemplate( true );
+        }
+
+        context.setSkinModel( loadedSkin.getSkinModel() );
+
+        return context;
+    }
+
+    /**
+     * Load a skin, or get it from the skin loader cache if already loaded: skin descriptor is parsed and skin class
+     * loader created only once for every site rendering context.
+     *
+     * @param skin the skin artifact
+     * @return the loaded skin
+     */
+    private SkinLoaderCache.LoadedSkin loadSkin( Artifact skin )
+        throws IOException, RendererException
+    {
+        String key = SkinLoaderCache.getKey( skin.getFile() );
+
+        SkinLoaderCache.LoadedSkin loadedSkin = skinLoaderCache.get( key );
+
+        if ( loadedSkin != null )
+        {
+            return loadedSkin;
+        }
+
         ZipFile zipFile = getZipFile( skin.getFile() );
         InputStream in = null;
 
         try
         {
-            if ( zipFile.getEntry( SKIN_TEMPLATE_LOCATION ) != null )
-            {
-                context.setTemplateName( SKIN_TEMPLATE_LOCATION );
-                context.setTemplateClassLoader( new URLClassLoader( new URL[]{skin.getFile().toURI().toURL()} ) );
-            }
-            else
-            {
-                context.setTemplateName( DEFAULT_TEMPLATE );
-                context.setTemplateClassLoader( getClass().getClassLoader() );
-                context.setUsingDefaultTemplate( true );
-            }
+            SkinModel skinModel = null;
 
             ZipEntry skinDescriptorEntry = zipFile.getEntry( SkinModel.SKIN_DESCRIPTOR_LOCATION );
             if ( skinDescriptorEntry != null )
             {
                 in = zipFile.getInputStream( skinDescriptorEntry );
 
-                SkinModel skinModel = new SkinXpp3Reader().read( in );
-                context.setSkinModel( skinModel );
+                skinModel = new SkinXpp3Reader().read( in );
 
                 String toolsPrerequisite =
                     skinModel.getPrerequisites() == null ? null : skinModel.getPrerequisites().getDoxiaSitetools();
@@ -832,6 +1751,14 @@ public class DefaultSiteRenderer
                         + " Doxia Sitetools prerequisite, but current is " + current );
                 }
             }
+
+            ClassLoader classLoader = null;
+            if ( zipFile.getEntry( SKIN_TEMPLATE_LOCATION ) != null )
+            {
+                classLoader = skinLoaderCache.newClassLoader( skin.getFile() );
+            }
+
+            loadedSkin = new SkinLoaderCache.LoadedSkin( classLoader, skinModel );
         }
         catch ( XmlPullParserException e )
         {
@@ -844,7 +1771,49 @@ public class DefaultSiteRenderer
             closeZipFile( zipFile );
         }
 
-        return context;
+        skinLoaderCache.put( key, loadedSkin );
+
+        return loadedSkin;
+    }
+
+    /**
+     * Get a site template, compiled only once if its class loader content doesn't change (skin or default template).
+     * Must be called with the template class loader as thread context class loader.
+     *
+     * @param classLoader the template class loader, can be <code>null</code>
+     * @param templateName the template name
+     * @param encoding the template encoding, can be <code>null</code>
+     * @return the compiled template
+     */
+    private Template getTemplate( ClassLoader classLoader, String templateName, String encoding )
+    {
+        ConcurrentMap<String, Template> templates = skinLoaderCache.getTemplates( classLoader );
+
+        String key = templateName + '|' + encoding;
+
+        Template template = ( templates == null ) ? null : templates.get( key );
+
+        if ( template == null )
+        {
+            template = ( encoding == null ) ? velocity.getEngine().getTemplate( templateName )
+                            : velocity.getEngine().getTemplate( templateName, encoding );
+
+            if ( templates != null )
+            {
+                templates.putIfAbsent( key, template );
+            }
+        }
+
+        return template;
+    }
+
+    /**
+     * Close skin class loaders and stop document processing threads, at the end of the build.
+     */
+    public void dispose()
+    {
+        skinLoaderCache.close();
+        pipelineExecutor.shutdown();
     }
 
     boolean matchVersion( String current, String prerequisite )
@@ -920,41 +1889,15 @@ public class DefaultSiteRenderer
     {
         if ( siteRenderingContext.getSkin() != null )
         {
-            ZipFile file = getZipFile( siteRenderingContext.getSkin().getFile() );
-
-            try
-            {
-                for ( Enumeration<? extends ZipEntry> e = file.entries(); e.hasMoreElements(); )
-                {
-                    ZipEntry entry = e.nextElement();
-
-                    if ( !entry.getName().startsWith( "META-INF/" ) )
-                    {
-                        File destFile = new File( outputDirectory, entry.getName() );
-                        if ( !entry.isDirectory() )
-                        {
-                            if ( destFile.exists() )
-                            {
-                                // don't override existing content: avoids extra rewrite with same content or extra site
-                                // resource
-                                continue;
-                            }
-
-                            destFile.getParentFile().mkdirs();
-
-                            copyFileFromZip( file, entry, destFile );
-                        }
-                        else
-                        {
-                            destFile.mkdirs();
-                        }
-                    }
-                }
-            }
-            finally
+            File skinFile = siteRenderingContext.getSkin().getFile();
+            if ( skinFile == null )
             {
-                closeZipFile( file );
+                throw new IOException( "Error opening ZipFile: null" );
             }
+
+            // skin is extracted once, then copied to every output directory
+            skinCache.get( skinFile, siteRenderingContext.getSkinCacheDirectory() )
+                .copyTo( outputDirectory, siteRenderingContext.isLinkSkinResources() );
         }
 
         if ( siteRenderingContext.isUsingDefaultTemplate() )
@@ -1068,23 +2011,9 @@ public class DefaultSiteRenderer
         }
     }
 
-    private static void copyFileFromZip( ZipFile file, ZipEntry entry, File destFile )
-            throws IOException
-    {
-        FileOutputStream fos = new FileOutputStream( destFile );
-
-        try
-        {
-            IOUtil.copy( file.getInputStream( entry ), fos );
-        }
-        finally
-        {
-            IOUtil.close( fos );
-        }
-    }
-
     /**
-     * Copy the directory
+     * Copy the directory: files already up to date in destination (same length and last modification time, or same
+     * content) are not copied again, others are copied in parallel.
      *
      * @param source      source file to be copied
      * @param destination destination file
@@ -1109,34 +2038,24 @@ public class DefaultSiteRenderer
 
             List<String> includedFiles = Arrays.asList( scanner.getIncludedFiles() );
 
-            for ( String name : includedFiles )
-            {
-                File sourceFile = new File( source, name );
+            ResourceCopier copier = new ResourceCopier( Runtime.getRuntime().availableProcessors() );
 
-                File destinationFile = new File( destination, name );
+            copier.copy( source, destination, includedFiles );
 
-                FileUtils.copyFile( sourceFile, destinationFile );
+            if ( getLogger().isDebugEnabled() )
+            {
+                getLogger().debug( "Copied " + copier.getCopiedFiles() + " resources (" + copier.getCopiedBytes()
+                    + " bytes) from " + source + ", " + copier.getSkippedFiles() + " already up to date" );
             }
         }
     }
 
-    private Reader validate( Reader source, String resource )
-            throws ParseException, IOException
+    private XmlValidatingReader validate( Reader source, String resource )
+            throws IOException
     {
         getLogger().debug( "Validating: " + resource );
 
-        try
-        {
-            String content = IOUtil.toString( new BufferedReader( source ) );
-
-            new XmlValidator( new PlexusLoggerWrapper( getLogger() ) ).validate( content );
-
-            return new StringReader( content );
-        }
-        finally
-        {
-            IOUtil.close( source );
-        }
+        return new XmlValidatingReader( pipelineExecutor, source, resource, xmlValidator, getLogger() );
     }
 
     // TODO replace with StringUtils.endsWithIgnoreCase() from maven-shared-utils 0.7
@@ -1150,7 +2069,7 @@ public class DefaultSiteRenderer
         return str.regionMatches( true, str.length() - searchStr.length(), searchStr, 0, searchStr.length() );
     }
 
-    private static ZipFile getZipFile( File file )
+    static ZipFile getZipFile( File file )
         throws IOException
     {
         if ( file == null )
@@ -1171,7 +2090,7 @@ public class DefaultSiteRenderer
         }
     }
 
-    private static void closeZipFile( ZipFile zipFile )
+    static void closeZipFile( ZipFile zipFile )
     {
         // TODO: move to plexus utils
         try
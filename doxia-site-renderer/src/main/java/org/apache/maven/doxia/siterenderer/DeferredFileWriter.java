@@ -0,0 +1,93 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Writer to a file that is opened only when content is written: if nothing is written, the file is left untouched.
+ *
+ * @since 1.9.3
+ */
+class DeferredFileWriter
+    extends Writer
+{
+    private final File file;
+
+    private final String encoding;
+
+    private Writer writer;
+
+    DeferredFileWriter( File file, String encoding )
+    {
+        this.file = file;
+        this.encoding = encoding;
+    }
+
+    private Writer getWriter()
+        throws IOException
+    {
+        if ( writer == null )
+        {
+            // never write through a hard link to an extracted skin resource
+            file.delete();
+            writer = WriterFactory.newWriter( file, encoding );
+        }
+        return writer;
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        getWriter().write( cbuf, off, len );
+    }
+
+    @Override
+    public void write( String str, int off, int len )
+        throws IOException
+    {
+        getWriter().write( str, off, len );
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        if ( writer != null )
+        {
+            writer.flush();
+        }
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( writer != null )
+        {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,302 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+import org.codehaus.plexus.util.MatchPatterns;
+import org.codehaus.plexus.util.StringUtils;
+
+/**
+ * Scanner for Doxia document files in directories below a base directory, with a single file tree walk.
+ * For every directory, it finds the same files as <code>FileUtils.getFileNames( directory, "**&#47;*.*", excludes,
+ * false )</code>, ie without default excludes. Sub-directories of the base directory that don't contain any scanned
+ * directory (like <code>resources</code> in a site directory) are not walked.
+ * When a {@link DocumentIndex} is available, directories that didn't change since previous build are not listed.
+ *
+ * @since 1.9.3
+ */
+class DocumentFileScanner
+    implements Callable<List<List<String>>>
+{
+    private final File basedir;
+
+    /** scanned directories, relative to basedir with <code>/</code> separator, <code>""</code> for basedir itself */
+    private final List<String> directories = new ArrayList<String>();
+
+    private final List<MatchPatterns> excludes = new ArrayList<MatchPatterns>();
+
+    private final DocumentIndex index;
+
+    /** scanned directories indexes, by directory */
+    private final Map<String, List<Integer>> directoryIndex = new HashMap<String, List<Integer>>();
+
+    /** parent directories of scanned directories */
+    private final Set<String> parents = new HashSet<String>();
+
+    /**
+     * @param basedir the base directory to walk
+     * @param index the document index to reuse directories listings from, can be <code>null</code>
+     */
+    DocumentFileScanner( File basedir, DocumentIndex index )
+    {
+        this.basedir = basedir;
+        this.index = index;
+    }
+
+    File getBasedir()
+    {
+        return basedir;
+    }
+
+    /**
+     * Add a directory to scan.
+     *
+     * @param directory the directory relative to base directory, <code>""</code> for base directory itself
+     * @param excludes comma separated exclude patterns, can be <code>null</code>
+     */
+    void addDirectory( String directory, String excludes )
+    {
+        String dir = StringUtils.replace( directory, "\\", "/" );
+        while ( dir.endsWith( "/" ) )
+        {
+            dir = dir.substring( 0, dir.length() - 1 );
+        }
+        this.directories.add( dir );
+        this.excludes.add( getExcludes( excludes ) );
+    }
+
+    private static MatchPatterns getExcludes( String excludes )
+    {
+        List<String> patterns = new ArrayList<String>();
+
+        if ( excludes != null )
+        {
+            // same normalization as DirectoryScanner.setExcludes()
+            for ( String exclude : StringUtils.split( excludes, "," ) )
+            {
+                String pattern = exclude.trim().replace( '/', File.separatorChar ).replace( '\\', File.separatorChar );
+                if ( pattern.endsWith( File.separator ) )
+                {
+                    pattern += "**";
+                }
+                patterns.add( pattern );
+            }
+        }
+
+        return MatchPatterns.from( patterns.toArray( new String[patterns.size()] ) );
+    }
+
+    /**
+     * Walk the base directory.
+     *
+     * @return for every added directory, in addition order, the names of the files found, relative to the directory
+     * @throws IOException if the walk fails
+     */
+    public List<List<String>> call()
+        throws IOException
+    {
+        List<List<String>> fileNames = new ArrayList<List<String>>( directories.size() );
+
+        for ( int i = 0; i < directories.size(); i++ )
+        {
+            String directory = directories.get( i );
+
+            List<Integer> indexes = directoryIndex.get( directory );
+            if ( indexes == null )
+            {
+                indexes = new ArrayList<Integer>( 1 );
+                directoryIndex.put( directory, indexes );
+            }
+            indexes.add( i );
+
+            for ( int index = directory.indexOf( '/' ); index >= 0; index = directory.indexOf( '/', index + 1 ) )
+            {
+                parents.add( directory.substring( 0, index ) );
+            }
+
+            fileNames.add( new ArrayList<String>() );
+        }
+
+        if ( basedir.isDirectory() )
+        {
+            walk( basedir.toPath(), "", new HashSet<Object>(), fileNames );
+        }
+
+        return fileNames;
+    }
+
+    /**
+     * Walk a directory, in entries order like <code>DirectoryScanner</code>, following symbolic links.
+     *
+     * @param dir the directory
+     * @param path the directory path relative to base directory
+     * @param ancestors the walked ancestor directories keys, to detect symbolic link cycles
+     * @param fileNames the file names found
+     */
+    private void walk( Path dir, String path, Set<Object> ancestors, List<List<String>> fileNames )
+        throws IOException
+    {
+        BasicFileAttributes attrs = Files.readAttributes( dir, BasicFileAttributes.class );
+        Object key = ( attrs.fileKey() == null ) ? dir.toRealPath() : attrs.fileKey();
+
+        if ( !ancestors.add( key ) )
+        {
+            // symbolic link cycle: ignored, like DirectoryScanner does
+            return;
+        }
+
+        for ( String entry : list( dir, attrs.lastModifiedTime().toMillis() ) )
+        {
+            if ( entry.endsWith( DocumentIndex.DIRECTORY_SUFFIX ) )
+            {
+                String name = entry.substring( 0, entry.length() - DocumentIndex.DIRECTORY_SUFFIX.length() );
+                String subPath = ( path.length() == 0 ) ? name : ( path + '/' + name );
+
+                if ( parents.contains( subPath ) || isScanned( subPath ) )
+                {
+                    walk( dir.resolve( name ), subPath, ancestors, fileNames );
+                }
+            }
+            else
+            {
+                addFile( fileNames, ( path.length() == 0 ) ? entry : ( path + '/' + entry ) );
+            }
+        }
+
+        ancestors.remove( key );
+    }
+
+    /**
+     * List a directory entries, from the document index if the directory didn't change.
+     *
+     * @param dir the directory
+     * @param lastModified the directory last modification time
+     * @return the entries names, directories being suffixed with {@link DocumentIndex#DIRECTORY_SUFFIX}
+     */
+    private List<String> list( Path dir, long lastModified )
+        throws IOException
+    {
+        String directory = dir.toAbsolutePath().toString();
+
+        if ( index != null )
+        {
+            List<String> entries = index.getEntries( directory, lastModified );
+
+            if ( entries != null )
+            {
+                return entries;
+            }
+        }
+
+        long listingTime = System.currentTimeMillis();
+        List<String> entries = new ArrayList<String>();
+
+        DirectoryStream<Path> stream = Files.newDirectoryStream( dir );
+        try
+        {
+            for ( Path entry : stream )
+            {
+                String name = entry.getFileName().toString();
+                entries.add( Files.isDirectory( entry ) ? ( name + DocumentIndex.DIRECTORY_SUFFIX ) : name );
+            }
+        }
+        finally
+        {
+            stream.close();
+        }
+
+        if ( index != null )
+        {
+            index.setEntries( directory, lastModified, listingTime, entries );
+        }
+
+        return entries;
+    }
+
+    private boolean isScanned( String path )
+    {
+        if ( directoryIndex.containsKey( "" ) || directoryIndex.containsKey( path ) )
+        {
+            return true;
+        }
+
+        for ( int index = path.indexOf( '/' ); index >= 0; index = path.indexOf( '/', index + 1 ) )
+        {
+            if ( directoryIndex.containsKey( path.substring( 0, index ) ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+
+    private void addFile( List<List<String>> fileNames, String path )
+    {
+        // "**/*.*" include pattern
+        if ( path.indexOf( '.', path.lastIndexOf( '/' ) + 1 ) < 0 )
+        {
+            return;
+        }
+
+        addFile( directoryIndex.get( "" ), fileNames, path );
+
+        for ( int index = path.indexOf( '/' ); index >= 0; index = path.indexOf( '/', index + 1 ) )
+        {
+            List<Integer> indexes = directoryIndex.get( path.substring( 0, index ) );
+
+            if ( indexes != null )
+            {
+                addFile( indexes, fileNames, path.substring( index + 1 ) );
+            }
+        }
+    }
+
+    private void addFile( List<Integer> indexes, List<List<String>> fileNames, String name )
+    {
+        if ( indexes == null )
+        {
+            return;
+        }
+
+        String fileName = name.replace( '/', File.separatorChar );
+
+        for ( Integer index : indexes )
+        {
+            if ( !excludes.get( index ).matches( fileName, true ) )
+            {
+                fileNames.get( index ).add( fileName );
+            }
+        }
+    }
+}
@@ -0,0 +1,224 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Document discovery index, stored between builds: records for every scanned directory its last modification time
+ * and its entries, to avoid listing again directories that didn't change. Only a directory own entries are recorded,
+ * sub-directories being recorded separately. Recorded directories are kept until they no longer exist, even if they
+ * were not scanned by a build.
+ *
+ * @since 1.9.3
+ */
+class DocumentIndex
+{
+    /** Suffix of directory entries names. */
+    static final String DIRECTORY_SUFFIX = "/";
+
+    /**
+     * Directory modifications closer than this to the listing time may not have changed its last modification time
+     * (file system time granularity): such a listing is not reused.
+     */
+    private static final long RACY_DELAY = 2000;
+
+    private static final String DIRECTORY_PREFIX = "D ";
+
+    private static final String ENTRY_PREFIX = "E ";
+
+    private final File file;
+
+    private final Map<String, Listing> listings = new ConcurrentHashMap<String, Listing>();
+
+    private volatile boolean modified;
+
+    private DocumentIndex( File file )
+    {
+        this.file = file;
+    }
+
+    /**
+     * Load the document index from a file, or create an empty one if the file is not found.
+     *
+     * @param file the index file
+     * @return the document index
+     * @throws IOException if the index cannot be read
+     */
+    static DocumentIndex load( File file )
+        throws IOException
+    {
+        DocumentIndex index = new DocumentIndex( file );
+
+        if ( file.isFile() )
+        {
+            BufferedReader reader = new BufferedReader( ReaderFactory.newReader( file, "UTF-8" ) );
+            try
+            {
+                Listing listing = null;
+                String line;
+                while ( ( line = reader.readLine() ) != null )
+                {
+                    if ( line.startsWith( DIRECTORY_PREFIX ) )
+                    {
+                        int separator = line.indexOf( ' ', DIRECTORY_PREFIX.length() );
+                        long lastModified = Long.parseLong( line.substring( DIRECTORY_PREFIX.length(), separator ) );
+                        listing = new Listing( lastModified, new ArrayList<String>() );
+                        index.listings.put( line.substring( separator + 1 ), listing );
+                    }
+                    else if ( line.startsWith( ENTRY_PREFIX ) && listing != null )
+                    {
+                        listing.entries.add( line.substring( ENTRY_PREFIX.length() ) );
+                    }
+                }
+            }
+            catch ( RuntimeException e )
+            {
+                // corrupted index: every directory will be listed again
+                index.listings.clear();
+            }
+            finally
+            {
+                IOUtil.close( reader );
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Get the recorded entries of a directory.
+     *
+     * @param directory the directory absolute path
+     * @param lastModified the directory current last modification time
+     * @return the directory entries, directories being suffixed with {@link #DIRECTORY_SUFFIX}, or <code>null</code>
+     * if the directory was not recorded or has changed since
+     */
+    List<String> getEntries( String directory, long lastModified )
+    {
+        Listing listing = listings.get( directory );
+
+        if ( listing == null || listing.lastModified != lastModified )
+        {
+            return null;
+        }
+
+        return Collections.unmodifiableList( listing.entries );
+    }
+
+    /**
+     * Record the entries of a directory.
+     *
+     * @param directory the directory absolute path
+     * @param lastModified the directory last modification time
+     * @param listingTime the time when listing started
+     * @param entries the directory entries, directories being suffixed with {@link #DIRECTORY_SUFFIX}
+     */
+    void setEntries( String directory, long lastModified, long listingTime, List<String> entries )
+    {
+        // a listing that may not see a later modification is recorded as never up to date
+        long recordedLastModified = ( listingTime - lastModified < RACY_DELAY ) ? -1 : lastModified;
+
+        listings.put( directory, new Listing( recordedLastModified, entries ) );
+        modified = true;
+    }
+
+    /**
+     * Store the document index, if it has changed: directories that no longer exist are evicted.
+     *
+     * @throws IOException if the index cannot be written
+     */
+    void store()
+        throws IOException
+    {
+        for ( Iterator<String> it = listings.keySet().iterator(); it.hasNext(); )
+        {
+            if ( !new File( it.next() ).isDirectory() )
+            {
+                it.remove();
+                modified = true;
+            }
+        }
+
+        if ( !modified )
+        {
+            return;
+        }
+
+        file.getParentFile().mkdirs();
+
+        Writer writer = WriterFactory.newWriter( file, "UTF-8" );
+        try
+        {
+            PrintWriter out = new PrintWriter( writer );
+            out.print( "# Doxia Sitetools document discovery index\n" );
+
+            for ( Map.Entry<String, Listing> directory : new TreeMap<String, Listing>( listings ).entrySet() )
+            {
+                out.print( DIRECTORY_PREFIX + directory.getValue().lastModified + ' ' + directory.getKey() + '\n' );
+
+                for ( String entry : directory.getValue().entries )
+                {
+                    out.print( ENTRY_PREFIX + entry + '\n' );
+                }
+            }
+
+            out.flush();
+            if ( out.checkError() )
+            {
+                throw new IOException( "Error while writing document index " + file );
+            }
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+
+        modified = false;
+    }
+
+    private static class Listing
+    {
+        private final long lastModified;
+
+        private final List<String> entries;
+
+        Listing( long lastModified, List<String> entries )
+        {
+            this.lastModified = lastModified;
+            this.entries = entries;
+        }
+    }
+}
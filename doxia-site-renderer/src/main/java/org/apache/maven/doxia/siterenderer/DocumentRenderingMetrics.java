@@ -0,0 +1,205 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+
+/**
+ * Time spent rendering a document, by rendering phase, with its output size and memory allocation when available.
+ * Times are in nanoseconds. Velocity processing and validation of Doxia source documents run in other threads while
+ * the document is parsed: their time is the CPU time of these threads when the JVM supports it, and overlaps parsing
+ * time. Time of skipped phases is <code>0</code>.
+ *
+ * @since 1.9.3
+ * @see RenderingListener
+ */
+public class DocumentRenderingMetrics
+{
+    /**
+     * Document rendering phases.
+     */
+    public enum Phase
+    {
+        /** Velocity processing of <code>.vm</code> Doxia source documents */
+        VELOCITY,
+        /** XML validation of Doxia source documents */
+        VALIDATION,
+        /** Doxia parsing of source documents */
+        PARSING,
+        /** merge of the document into the site template */
+        TEMPLATE_MERGE,
+        /** output file write completion */
+        WRITE
+    }
+
+    private static final ThreadMXBean THREAD_BEAN = ManagementFactory.getThreadMXBean();
+
+    /** <code>com.sun.management.ThreadMXBean.getThreadAllocatedBytes(long)</code>, if available */
+    private static final Method GET_THREAD_ALLOCATED_BYTES = getThreadAllocatedBytesMethod();
+
+    private final String outputName;
+
+    private final String templateName;
+
+    private final long[] times = new long[Phase.values().length];
+
+    private long totalTime;
+
+    private long outputSize = -1;
+
+    private long allocatedBytes = -1;
+
+    /**
+     * @param outputName the document output name
+     * @param templateName the site template name, or skin id
+     */
+    public DocumentRenderingMetrics( String outputName, String templateName )
+    {
+        this.outputName = outputName;
+        this.templateName = templateName;
+    }
+
+    /**
+     * @return the document output name
+     */
+    public String getOutputName()
+    {
+        return outputName;
+    }
+
+    /**
+     * @return the site template name, or skin id, of the document
+     */
+    public String getTemplateName()
+    {
+        return templateName;
+    }
+
+    /**
+     * @param phase a rendering phase
+     * @return the time spent in the phase, in nanoseconds
+     */
+    public long getTime( Phase phase )
+    {
+        return times[phase.ordinal()];
+    }
+
+    /**
+     * @return the whole document rendering time, in nanoseconds
+     */
+    public long getTotalTime()
+    {
+        return totalTime;
+    }
+
+    /**
+     * @return the output file size in bytes, or <code>-1</code> if the document has no output file
+     */
+    public long getOutputSize()
+    {
+        return outputSize;
+    }
+
+    /**
+     * @return the memory allocated by the rendering thread in bytes, or <code>-1</code> if the JVM does not support
+     * measuring it
+     */
+    public long getAllocatedBytes()
+    {
+        return allocatedBytes;
+    }
+
+    synchronized void add( Phase phase, long time )
+    {
+        times[phase.ordinal()] += time;
+    }
+
+    void setTotalTime( long totalTime )
+    {
+        this.totalTime = totalTime;
+    }
+
+    void setOutputSize( long outputSize )
+    {
+        this.outputSize = outputSize;
+    }
+
+    void setAllocatedBytes( long allocatedBytes )
+    {
+        this.allocatedBytes = allocatedBytes;
+    }
+
+    /**
+     * @return the CPU time of the current thread if the JVM supports it, or the current time, in nanoseconds
+     */
+    static long currentThreadTime()
+    {
+        if ( THREAD_BEAN.isCurrentThreadCpuTimeSupported() && THREAD_BEAN.isThreadCpuTimeEnabled() )
+        {
+            return THREAD_BEAN.getCurrentThreadCpuTime();
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * @return the memory allocated by the current thread since its start, or <code>-1</code> if not supported
+     */
+    static long currentThreadAllocatedBytes()
+    {
+        if ( GET_THREAD_ALLOCATED_BYTES == null )
+        {
+            return -1;
+        }
+
+        try
+        {
+            return (Long) GET_THREAD_ALLOCATED_BYTES.invoke( THREAD_BEAN, Thread.currentThread().getId() );
+        }
+        catch ( Exception e )
+        {
+            return -1;
+        }
+    }
+
+    private static Method getThreadAllocatedBytesMethod()
+    {
+        try
+        {
+            // HotSpot extension, not available on every JVM
+            Class<?> beanClass = Class.forName( "com.sun.management.ThreadMXBean" );
+            if ( beanClass.isInstance( THREAD_BEAN )
+                && (Boolean) beanClass.getMethod( "isThreadAllocatedMemoryEnabled" ).invoke( THREAD_BEAN ) )
+            {
+                return beanClass.getMethod( "getThreadAllocatedBytes", long.class );
+            }
+        }
+        catch ( Exception e )
+        {
+            // not supported
+        }
+        catch ( LinkageError e )
+        {
+            // not supported
+        }
+        return null;
+    }
+}
@@ -35,14 +35,29 @@ public class DoxiaDocumentRenderer
 {
     private RenderingContext renderingContext;
 
+    private boolean overwrite;
+
     /**
      * Constructor.
      *
      * @param renderingContext the document's RenderingContext to use.
      */
     public DoxiaDocumentRenderer( RenderingContext renderingContext )
+    {
+        this( renderingContext, false );
+    }
+
+    /**
+     * Constructor.
+     *
+     * @param renderingContext the document's RenderingContext to use.
+     * @param overwrite if the document is rendered even if its output looks up to date
+     * @since 1.9.3
+     */
+    public DoxiaDocumentRenderer( RenderingContext renderingContext, boolean overwrite )
     {
         this.renderingContext = renderingContext;
+        this.overwrite = overwrite;
     }
 
     /** {@inheritDoc} */
@@ -67,7 +82,7 @@ public class DoxiaDocumentRenderer
     /** {@inheritDoc} */
     public boolean isOverwrite()
     {
-        return false;
+        return overwrite;
     }
 
     public boolean isExternalReport()
@@ -0,0 +1,185 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * SHA-1 fingerprint of a sequence of values and file contents.
+ *
+ * @since 1.9.3
+ */
+class Fingerprint
+{
+    private static final char[] HEX_DIGITS = "0123456789abcdef".toCharArray();
+
+    private static final int BUFFER_SIZE = 8192;
+
+    private final MessageDigest digest;
+
+    Fingerprint()
+    {
+        try
+        {
+            digest = MessageDigest.getInstance( "SHA-1" );
+        }
+        catch ( NoSuchAlgorithmException e )
+        {
+            // every Java platform is required to support SHA-1
+            throw new IllegalStateException( "SHA-1 message digest is not available", e );
+        }
+    }
+
+    /**
+     * Add a value to the fingerprint.
+     *
+     * @param value the value, can be <code>null</code>
+     * @return this fingerprint
+     */
+    Fingerprint add( String value )
+    {
+        if ( value != null )
+        {
+            digest.update( (byte) 1 );
+            digest.update( value.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        digest.update( (byte) 0 );
+
+        return this;
+    }
+
+    /**
+     * Add the content of a file to the fingerprint.
+     *
+     * @param file the file
+     * @return this fingerprint
+     * @throws IOException if the file cannot be read
+     */
+    Fingerprint add( File file )
+        throws IOException
+    {
+        return add( new FileInputStream( file ) );
+    }
+
+    /**
+     * Add the content of a resource to the fingerprint.
+     *
+     * @param resource the resource URL
+     * @return this fingerprint
+     * @throws IOException if the resource cannot be read
+     */
+    Fingerprint add( URL resource )
+        throws IOException
+    {
+        return add( resource.openStream() );
+    }
+
+    private Fingerprint add( InputStream in )
+        throws IOException
+    {
+        try
+        {
+            byte[] buffer = new byte[BUFFER_SIZE];
+            int n;
+            while ( ( n = in.read( buffer ) ) != -1 )
+            {
+                digest.update( buffer, 0, n );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        digest.update( (byte) 0 );
+
+        return this;
+    }
+
+    /**
+     * Get a writer adding a value to the fingerprint while it is written, without keeping the value in memory: once
+     * the writer is closed, the fingerprint is the same as with {@link #add(String)} called with the whole value.
+     *
+     * @return the value writer, to close before any other addition
+     */
+    Writer newValueWriter()
+    {
+        digest.update( (byte) 1 );
+
+        OutputStream out = new OutputStream()
+        {
+            private boolean closed;
+
+            @Override
+            public void write( int b )
+            {
+                digest.update( (byte) b );
+            }
+
+            @Override
+            public void write( byte[] b, int off, int len )
+            {
+                digest.update( b, off, len );
+            }
+
+            @Override
+            public void close()
+            {
+                if ( !closed )
+                {
+                    closed = true;
+                    digest.update( (byte) 0 );
+                }
+            }
+        };
+
+        return new OutputStreamWriter( out, StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Complete the fingerprint computation: this fingerprint is reset afterwards.
+     *
+     * @return the fingerprint as hexadecimal string
+     */
+    String digest()
+    {
+        byte[] bytes = digest.digest();
+
+        char[] hex = new char[bytes.length * 2];
+        for ( int i = 0; i < bytes.length; i++ )
+        {
+            hex[2 * i] = HEX_DIGITS[( bytes[i] >> 4 ) & 0x0f];
+            hex[2 * i + 1] = HEX_DIGITS[bytes[i] & 0x0f];
+        }
+
+        return new String( hex );
+    }
+}
@@ -0,0 +1,170 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writer that normalizes newlines on the fly: every <code>\n</code> or <code>\r\n</code> is replaced with
+ * the configured line separator, like <code>replaceAll( "\r?\n", lineSeparator )</code> would do on the whole
+ * content but without materializing it. Output is buffered and written to the underlying writer by chunks.
+ *
+ * @since 1.9.3
+ */
+class NewlineNormalizingWriter
+    extends Writer
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final Writer out;
+
+    private final char[] lineSeparator;
+
+    private final char[] buffer = new char[BUFFER_SIZE];
+
+    private int count;
+
+    /** a <code>\r</code> was written: it is kept until next character tells if it is the start of a newline */
+    private boolean pendingCarriageReturn;
+
+    /**
+     * @param out the underlying writer
+     * @param lineSeparator the line separator to use for newlines
+     */
+    NewlineNormalizingWriter( Writer out, String lineSeparator )
+    {
+        this.out = out;
+        this.lineSeparator = lineSeparator.toCharArray();
+    }
+
+    @Override
+    public void write( int c )
+        throws IOException
+    {
+        normalize( (char) c );
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        for ( int i = off; i < off + len; i++ )
+        {
+            normalize( cbuf[i] );
+        }
+    }
+
+    @Override
+    public void write( String str, int off, int len )
+        throws IOException
+    {
+        for ( int i = off; i < off + len; i++ )
+        {
+            normalize( str.charAt( i ) );
+        }
+    }
+
+    private void normalize( char c )
+        throws IOException
+    {
+        if ( pendingCarriageReturn )
+        {
+            pendingCarriageReturn = false;
+
+            if ( c == '\n' )
+            {
+                appendLineSeparator();
+                return;
+            }
+
+            bufferChar( '\r' );
+        }
+
+        if ( c == '\r' )
+        {
+            pendingCarriageReturn = true;
+        }
+        else if ( c == '\n' )
+        {
+            appendLineSeparator();
+        }
+        else
+        {
+            bufferChar( c );
+        }
+    }
+
+    private void appendLineSeparator()
+        throws IOException
+    {
+        for ( char c : lineSeparator )
+        {
+            bufferChar( c );
+        }
+    }
+
+    private void bufferChar( char c )
+        throws IOException
+    {
+        if ( count == BUFFER_SIZE )
+        {
+            flushBuffer();
+        }
+
+        buffer[count++] = c;
+    }
+
+    private void flushBuffer()
+        throws IOException
+    {
+        if ( count > 0 )
+        {
+            out.write( buffer, 0, count );
+            count = 0;
+        }
+    }
+
+    /**
+     * Flush buffered content to the underlying writer. A trailing <code>\r</code> is kept until next write or close,
+     * since it may be the beginning of a <code>\r\n</code> newline.
+     */
+    @Override
+    public void flush()
+        throws IOException
+    {
+        flushBuffer();
+        out.flush();
+    }
+
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( pendingCarriageReturn )
+        {
+            pendingCarriageReturn = false;
+            bufferChar( '\r' );
+        }
+
+        flushBuffer();
+        out.close();
+    }
+}
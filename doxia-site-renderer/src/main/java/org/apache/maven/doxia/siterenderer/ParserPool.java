@@ -0,0 +1,141 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.doxia.parser.Parser;
+import org.codehaus.plexus.PlexusContainer;
+
+/**
+ * Pool of private parser instances, so documents of the same format can be parsed in parallel: Doxia parsers are
+ * stateful Plexus singletons. An instance is created from the singleton class, with the same Plexus component
+ * requirements, and reused once released: there are at most as many instances of a parser as rendering threads.
+ *
+ * @since 1.9.3
+ */
+class ParserPool
+{
+    private final PlexusContainer container;
+
+    /**
+     * Released instances, by parser class.
+     */
+    private final ConcurrentMap<Class<?>, Queue<Parser>> idle = new ConcurrentHashMap<Class<?>, Queue<Parser>>();
+
+    /**
+     * Parser classes that can't be instantiated outside the container: their singleton is used.
+     */
+    private final ConcurrentMap<Class<?>, Boolean> shared = new ConcurrentHashMap<Class<?>, Boolean>();
+
+    /**
+     * @param container the container of the parsers, to find their component requirements
+     */
+    ParserPool( PlexusContainer container )
+    {
+        this.container = container;
+    }
+
+    /**
+     * Get a parser instance for the exclusive use of the caller, until released.
+     *
+     * @param singleton the parser component
+     * @return a private instance of the parser, or <code>null</code> if the parser can't be instantiated: its
+     * singleton is then to be used, with exclusive access
+     */
+    Parser acquire( Parser singleton )
+    {
+        Class<?> type = singleton.getClass();
+
+        Queue<Parser> queue = idle.get( type );
+        Parser parser = ( queue == null ) ? null : queue.poll();
+
+        if ( parser == null && !shared.containsKey( type ) )
+        {
+            try
+            {
+                parser = newInstance( singleton );
+            }
+            catch ( ReflectiveOperationException e )
+            {
+                shared.put( type, Boolean.TRUE );
+            }
+            catch ( RuntimeException e )
+            {
+                shared.put( type, Boolean.TRUE );
+            }
+        }
+
+        return parser;
+    }
+
+    /**
+     * Release a parser instance got from {@link #acquire(Parser)}, once its parsing is done.
+     *
+     * @param parser the parser, not null
+     */
+    void release( Parser parser )
+    {
+        Queue<Parser> queue = idle.get( parser.getClass() );
+        if ( queue == null )
+        {
+            queue = new ConcurrentLinkedQueue<Parser>();
+            Queue<Parser> previous = idle.putIfAbsent( parser.getClass(), queue );
+            if ( previous != null )
+            {
+                queue = previous;
+            }
+        }
+        queue.add( parser );
+    }
+
+    /**
+     * Instantiate a parser, with the component requirements of its singleton: the fields whose type is a component
+     * role reference the same components, other fields keep their initial value.
+     */
+    private Parser newInstance( Parser singleton )
+        throws ReflectiveOperationException
+    {
+        Parser parser = singleton.getClass().newInstance();
+
+        for ( Class<?> c = singleton.getClass(); c != null && c != Object.class; c = c.getSuperclass() )
+        {
+            for ( Field field : c.getDeclaredFields() )
+            {
+                int modifiers = field.getModifiers();
+                if ( Modifier.isStatic( modifiers ) || Modifier.isFinal( modifiers ) || !field.getType().isInterface()
+                    || !container.hasComponent( field.getType().getName() ) )
+                {
+                    continue;
+                }
+
+                field.setAccessible( true );
+                field.set( parser, field.get( singleton ) );
+            }
+        }
+
+        return parser;
+    }
+}
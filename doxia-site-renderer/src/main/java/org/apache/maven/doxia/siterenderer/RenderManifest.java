@@ -0,0 +1,180 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Render manifest, stored in the output directory: records for every rendered document the fingerprint of everything
+ * its output depends on (site rendering context, source content or Velocity processed content), to skip rendering
+ * on next build if nothing changed.
+ *
+ * @since 1.9.3
+ */
+class RenderManifest
+{
+    /** Name of the render manifest file in the output directory. */
+    static final String FILE_NAME = ".doxia-render-manifest";
+
+    private final File file;
+
+    private final String siteFingerprint;
+
+    private final Properties fingerprints = new Properties();
+
+    private volatile boolean modified;
+
+    private RenderManifest( File file, String siteFingerprint )
+    {
+        this.file = file;
+        this.siteFingerprint = siteFingerprint;
+    }
+
+    /**
+     * Load the render manifest from an output directory, or create an empty one if none is found.
+     *
+     * @param outputDirectory the output directory
+     * @param siteFingerprint fingerprint of the site rendering context, included in every document fingerprint
+     * @return the render manifest
+     * @throws IOException if the manifest cannot be read
+     */
+    static RenderManifest load( File outputDirectory, String siteFingerprint )
+        throws IOException
+    {
+        RenderManifest manifest = new RenderManifest( new File( outputDirectory, FILE_NAME ), siteFingerprint );
+
+        if ( manifest.file.isFile() )
+        {
+            InputStream in = new FileInputStream( manifest.file );
+            try
+            {
+                manifest.fingerprints.load( in );
+            }
+            catch ( IllegalArgumentException e )
+            {
+                // corrupted manifest: everything will be rendered again
+                manifest.fingerprints.clear();
+            }
+            finally
+            {
+                IOUtil.close( in );
+            }
+        }
+
+        return manifest;
+    }
+
+    /**
+     * Compute the fingerprint of a document rendered from a source file.
+     *
+     * @param outputName the document output name
+     * @param source the document source file
+     * @return the document fingerprint
+     * @throws IOException if the source file cannot be read
+     */
+    String getFingerprint( String outputName, File source )
+        throws IOException
+    {
+        return new Fingerprint().add( siteFingerprint ).add( outputName ).add( source ).digest();
+    }
+
+    /**
+     * Start the fingerprint of a document rendered from a content, to add the content while it is produced with
+     * {@link Fingerprint#newValueWriter()}.
+     *
+     * @param outputName the document output name
+     * @return the document fingerprint, to complete with the content
+     */
+    Fingerprint newFingerprint( String outputName )
+    {
+        return new Fingerprint().add( siteFingerprint ).add( outputName );
+    }
+
+    /**
+     * @param outputName the document output name
+     * @param fingerprint the current document fingerprint
+     * @return <code>true</code> if the document was already rendered with this fingerprint
+     */
+    boolean isUpToDate( String outputName, String fingerprint )
+    {
+        return fingerprint.equals( fingerprints.getProperty( outputName ) );
+    }
+
+    /**
+     * Record that a document has been rendered.
+     *
+     * @param outputName the document output name
+     * @param fingerprint the document fingerprint
+     */
+    void setUpToDate( String outputName, String fingerprint )
+    {
+        fingerprints.setProperty( outputName, fingerprint );
+        modified = true;
+    }
+
+    /**
+     * Forget a document, which will be rendered on next build.
+     *
+     * @param outputName the document output name
+     */
+    void remove( String outputName )
+    {
+        if ( fingerprints.remove( outputName ) != null )
+        {
+            modified = true;
+        }
+    }
+
+    /**
+     * Store the render manifest in the output directory, if it has been modified.
+     *
+     * @throws IOException if the manifest cannot be written
+     */
+    void store()
+        throws IOException
+    {
+        if ( !modified )
+        {
+            return;
+        }
+
+        file.getParentFile().mkdirs();
+
+        OutputStream out = new FileOutputStream( file );
+        try
+        {
+            fingerprints.store( out, "Doxia Sitetools render manifest" );
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+
+        modified = false;
+    }
+}
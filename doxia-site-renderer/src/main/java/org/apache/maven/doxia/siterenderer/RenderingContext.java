@@ -55,6 +55,8 @@ public class RenderingContext // TODO rename to DocumentRenderingContext
 
     private final String generator;
 
+    private DocumentRenderingMetrics metrics;
+
     @Deprecated
     public RenderingContext( File basedir, String document )
     {
@@ -292,4 +294,19 @@ public class RenderingContext // TODO rename to DocumentRenderingContext
     {
         return PathTool.calculateLink( getDoxiaSourcePath(), base );
     }
+
+    /**
+     * Metrics of the document rendering in progress.
+     *
+     * @return the rendering metrics, or <code>null</code> if not rendering
+     */
+    DocumentRenderingMetrics getMetrics()
+    {
+        return metrics;
+    }
+
+    void setMetrics( DocumentRenderingMetrics metrics )
+    {
+        this.metrics = metrics;
+    }
 }
@@ -0,0 +1,47 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+/**
+ * Listener of site rendering, notified with rendering metrics: documents discovery time, and time spent rendering
+ * each document by phase. Documents may be rendered in parallel, so implementations must be thread safe.
+ *
+ * @since 1.9.3
+ * @see SiteRenderingContext#addRenderingListener(RenderingListener)
+ */
+public interface RenderingListener
+{
+    /**
+     * Documents were located in site directories.
+     *
+     * @param siteRenderingContext the site rendering context
+     * @param documents the number of documents found
+     * @param time the time spent locating documents, in nanoseconds
+     */
+    void documentsLocated( SiteRenderingContext siteRenderingContext, int documents, long time );
+
+    /**
+     * A document was rendered.
+     *
+     * @param siteRenderingContext the site rendering context
+     * @param metrics the document rendering metrics
+     */
+    void documentRendered( SiteRenderingContext siteRenderingContext, DocumentRenderingMetrics metrics );
+}
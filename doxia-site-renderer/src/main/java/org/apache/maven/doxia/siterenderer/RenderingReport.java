@@ -0,0 +1,243 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.apache.maven.doxia.siterenderer.DocumentRenderingMetrics.Phase;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Rendering report, accumulating rendering metrics to write them as JSON: totals by phase, slowest documents and
+ * templates merge time. Times are written in milliseconds.
+ *
+ * @since 1.9.3
+ * @see SiteRenderingContext#setRenderingReportFile(File)
+ */
+class RenderingReport
+    implements RenderingListener
+{
+    private static final int SLOWEST_DOCUMENTS = 20;
+
+    private static final double NANOS_PER_MILLI = 1000000d;
+
+    private int locatedDocuments;
+
+    private long locateTime;
+
+    private final List<DocumentRenderingMetrics> documents = new ArrayList<DocumentRenderingMetrics>();
+
+    /** {@inheritDoc} */
+    public synchronized void documentsLocated( SiteRenderingContext siteRenderingContext, int documents, long time )
+    {
+        locatedDocuments += documents;
+        locateTime += time;
+    }
+
+    /** {@inheritDoc} */
+    public synchronized void documentRendered( SiteRenderingContext siteRenderingContext,
+                                               DocumentRenderingMetrics metrics )
+    {
+        documents.add( metrics );
+    }
+
+    /**
+     * Write the report.
+     *
+     * @param file the JSON report file
+     * @throws IOException if the report can't be written
+     */
+    synchronized void write( File file )
+        throws IOException
+    {
+        if ( file.getParentFile() != null )
+        {
+            file.getParentFile().mkdirs();
+        }
+
+        Writer out = WriterFactory.newWriter( file, WriterFactory.UTF_8 );
+        try
+        {
+            out.write( toJson() );
+            out.close();
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+
+    synchronized String toJson()
+    {
+        StringBuilder json = new StringBuilder( "{\n" );
+
+        json.append( "  \"locatedDocuments\": " ).append( locatedDocuments ).append( ",\n" );
+        json.append( "  \"locateTime\": " ).append( millis( locateTime ) ).append( ",\n" );
+        json.append( "  \"renderedDocuments\": " ).append( documents.size() ).append( ",\n" );
+
+        long totalTime = 0;
+        long[] phaseTimes = new long[Phase.values().length];
+        Map<String, long[]> templates = new LinkedHashMap<String, long[]>();
+        for ( DocumentRenderingMetrics metrics : documents )
+        {
+            totalTime += metrics.getTotalTime();
+            for ( Phase phase : Phase.values() )
+            {
+                phaseTimes[phase.ordinal()] += metrics.getTime( phase );
+            }
+
+            long[] template = templates.get( metrics.getTemplateName() );
+            if ( template == null )
+            {
+                template = new long[2];
+                templates.put( metrics.getTemplateName(), template );
+            }
+            template[0]++;
+            template[1] += metrics.getTime( Phase.TEMPLATE_MERGE );
+        }
+
+        json.append( "  \"renderTime\": " ).append( millis( totalTime ) ).append( ",\n" );
+        json.append( "  \"phases\": {" );
+        for ( Phase phase : Phase.values() )
+        {
+            json.append( ( phase.ordinal() == 0 ) ? "\n" : ",\n" );
+            json.append( "    " ).append( quote( key( phase ) ) ).append( ": " );
+            json.append( millis( phaseTimes[phase.ordinal()] ) );
+        }
+        json.append( "\n  },\n" );
+
+        List<DocumentRenderingMetrics> slowest = new ArrayList<DocumentRenderingMetrics>( documents );
+        Collections.sort( slowest, new Comparator<DocumentRenderingMetrics>()
+        {
+            public int compare( DocumentRenderingMetrics m1, DocumentRenderingMetrics m2 )
+            {
+                return Long.compare( m2.getTotalTime(), m1.getTotalTime() );
+            }
+        } );
+        json.append( "  \"slowestDocuments\": [" );
+        for ( int i = 0; i < Math.min( SLOWEST_DOCUMENTS, slowest.size() ); i++ )
+        {
+            DocumentRenderingMetrics metrics = slowest.get( i );
+            json.append( ( i == 0 ) ? "\n" : ",\n" );
+            json.append( "    { \"outputName\": " ).append( quote( metrics.getOutputName() ) );
+            json.append( ", \"template\": " ).append( quote( metrics.getTemplateName() ) );
+            json.append( ", \"totalTime\": " ).append( millis( metrics.getTotalTime() ) );
+            for ( Phase phase : Phase.values() )
+            {
+                json.append( ", " ).append( quote( key( phase ) ) ).append( ": " );
+                json.append( millis( metrics.getTime( phase ) ) );
+            }
+            json.append( ", \"outputSize\": " ).append( metrics.getOutputSize() );
+            json.append( ", \"allocatedBytes\": " ).append( metrics.getAllocatedBytes() ).append( " }" );
+        }
+        json.append( slowest.isEmpty() ? "],\n" : "\n  ],\n" );
+
+        List<Map.Entry<String, long[]>> slowestTemplates = new ArrayList<Map.Entry<String, long[]>>(
+            templates.entrySet() );
+        Collections.sort( slowestTemplates, new Comparator<Map.Entry<String, long[]>>()
+        {
+            public int compare( Map.Entry<String, long[]> t1, Map.Entry<String, long[]> t2 )
+            {
+                return Long.compare( t2.getValue()[1], t1.getValue()[1] );
+            }
+        } );
+        json.append( "  \"templates\": [" );
+        for ( int i = 0; i < slowestTemplates.size(); i++ )
+        {
+            Map.Entry<String, long[]> template = slowestTemplates.get( i );
+            json.append( ( i == 0 ) ? "\n" : ",\n" );
+            json.append( "    { \"template\": " ).append( quote( template.getKey() ) );
+            json.append( ", \"documents\": " ).append( template.getValue()[0] );
+            json.append( ", \"mergeTime\": " ).append( millis( template.getValue()[1] ) ).append( " }" );
+        }
+        json.append( slowestTemplates.isEmpty() ? "]\n" : "\n  ]\n" );
+
+        return json.append( "}\n" ).toString();
+    }
+
+    private static String key( Phase phase )
+    {
+        // TEMPLATE_MERGE -> templateMerge
+        String[] words = phase.name().toLowerCase( Locale.ENGLISH ).split( "_" );
+        StringBuilder key = new StringBuilder( words[0] );
+        for ( int i = 1; i < words.length; i++ )
+        {
+            key.append( Character.toUpperCase( words[i].charAt( 0 ) ) ).append( words[i].substring( 1 ) );
+        }
+        return key.toString();
+    }
+
+    private static String millis( long nanos )
+    {
+        return String.format( Locale.ENGLISH, "%.3f", nanos / NANOS_PER_MILLI );
+    }
+
+    private static String quote( String value )
+    {
+        if ( value == null )
+        {
+            return "null";
+        }
+
+        StringBuilder quoted = new StringBuilder( "\"" );
+        for ( int i = 0; i < value.length(); i++ )
+        {
+            char c = value.charAt( i );
+            switch ( c )
+            {
+                case '"':
+                    quoted.append( "\\\"" );
+                    break;
+                case '\\':
+                    quoted.append( "\\\\" );
+                    break;
+                case '\n':
+                    quoted.append( "\\n" );
+                    break;
+                case '\r':
+                    quoted.append( "\\r" );
+                    break;
+                case '\t':
+                    quoted.append( "\\t" );
+                    break;
+                default:
+                    if ( c < 0x20 )
+                    {
+                        quoted.append( String.format( "\\u%04x", (int) c ) );
+                    }
+                    else
+                    {
+                        quoted.append( c );
+                    }
+            }
+        }
+        return quoted.append( '"' ).toString();
+    }
+}
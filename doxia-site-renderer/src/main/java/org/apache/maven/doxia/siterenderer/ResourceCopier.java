@@ -0,0 +1,315 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Copier of resource files, in parallel, that skips destination files already up to date: same length and last
+ * modification time, or same content. Copied files get the last modification time of their source, for next copy to
+ * find them up to date without reading them. Counts copied and skipped files and copied bytes.
+ *
+ * @since 1.9.3
+ */
+class ResourceCopier
+{
+    private static final int BUFFER_SIZE = 8192;
+
+    private final int threads;
+
+    private final AtomicInteger copiedFiles = new AtomicInteger();
+
+    private final AtomicInteger skippedFiles = new AtomicInteger();
+
+    private final AtomicLong copiedBytes = new AtomicLong();
+
+    /**
+     * @param threads the maximum number of files copied in parallel
+     */
+    ResourceCopier( int threads )
+    {
+        this.threads = Math.max( 1, threads );
+    }
+
+    /**
+     * Copy files from a source directory to a destination directory.
+     *
+     * @param source the source directory
+     * @param destination the destination directory
+     * @param names the names of the files to copy, relative to source directory
+     * @throws IOException if a copy fails
+     */
+    void copy( final File source, final File destination, List<String> names )
+        throws IOException
+    {
+        if ( threads == 1 || names.size() < 2 )
+        {
+            for ( String name : names )
+            {
+                copyFile( new File( source, name ), new File( destination, name ) );
+            }
+            return;
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool( Math.min( threads, names.size() ) );
+
+        try
+        {
+            List<Future<Void>> copies = new ArrayList<Future<Void>>( names.size() );
+
+            for ( final String name : names )
+            {
+                copies.add( executor.submit( new Callable<Void>()
+                {
+                    public Void call()
+                        throws IOException
+                    {
+                        copyFile( new File( source, name ), new File( destination, name ) );
+                        return null;
+                    }
+                } ) );
+            }
+
+            for ( Future<Void> copy : copies )
+            {
+                copy.get();
+            }
+        }
+        catch ( ExecutionException e )
+        {
+            if ( e.getCause() instanceof IOException )
+            {
+                throw (IOException) e.getCause();
+            }
+            if ( e.getCause() instanceof RuntimeException )
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IOException( "Error while copying " + source + " to " + destination, e.getCause() );
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IOException( "Interrupted while copying " + source + " to " + destination, e );
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+    int getCopiedFiles()
+    {
+        return copiedFiles.get();
+    }
+
+    int getSkippedFiles()
+    {
+        return skippedFiles.get();
+    }
+
+    long getCopiedBytes()
+    {
+        return copiedBytes.get();
+    }
+
+    private void copyFile( File source, File destination )
+        throws IOException
+    {
+        long length = source.length();
+        long lastModified = source.lastModified();
+
+        if ( destination.isFile() && destination.length() == length )
+        {
+            if ( destination.lastModified() == lastModified )
+            {
+                skippedFiles.incrementAndGet();
+                return;
+            }
+
+            if ( hasSameContent( source, destination ) )
+            {
+                if ( !isHardLinked( destination ) )
+                {
+                    // not shared with an extracted skin resource, which last modification time must not change
+                    destination.setLastModified( lastModified );
+                }
+                skippedFiles.incrementAndGet();
+                return;
+            }
+        }
+
+        Files.createDirectories( destination.getParentFile().toPath() );
+
+        // replace instead of overwrite: never write through a hard link to an extracted skin resource
+        destination.delete();
+
+        copiedBytes.addAndGet( transfer( source, destination ) );
+
+        destination.setLastModified( lastModified );
+        copiedFiles.incrementAndGet();
+    }
+
+    /**
+     * Copy a file content with a channel transfer, that the operating system can do without copying to user space.
+     *
+     * @param source the source file
+     * @param destination the destination file, created or overwritten
+     * @return the number of bytes copied
+     * @throws IOException if copy fails
+     */
+    static long transfer( File source, File destination )
+        throws IOException
+    {
+        FileInputStream in = new FileInputStream( source );
+        try
+        {
+            FileOutputStream out = new FileOutputStream( destination );
+            try
+            {
+                FileChannel input = in.getChannel();
+                FileChannel output = out.getChannel();
+                long size = input.size();
+                long position = 0;
+                while ( position < size )
+                {
+                    long transferred = input.transferTo( position, size - position, output );
+                    if ( transferred <= 0 )
+                    {
+                        // source truncated while copying
+                        break;
+                    }
+                    position += transferred;
+                }
+                return position;
+            }
+            finally
+            {
+                IOUtil.close( out );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the file has other hard links, or if it can't be known
+     */
+    private static boolean isHardLinked( File file )
+    {
+        try
+        {
+            Object links = Files.getAttribute( file.toPath(), "unix:nlink" );
+            return !( links instanceof Integer ) || ( (Integer) links ).intValue() > 1;
+        }
+        catch ( UnsupportedOperationException e )
+        {
+            // no hard links reported by this file system: hard links are created only where supported
+            return false;
+        }
+        catch ( IllegalArgumentException e )
+        {
+            return false;
+        }
+        catch ( IOException e )
+        {
+            return true;
+        }
+    }
+
+    private static boolean hasSameContent( File file1, File file2 )
+        throws IOException
+    {
+        InputStream in1 = new FileInputStream( file1 );
+        try
+        {
+            InputStream in2 = new FileInputStream( file2 );
+            try
+            {
+                byte[] buffer1 = new byte[BUFFER_SIZE];
+                byte[] buffer2 = new byte[BUFFER_SIZE];
+                int read;
+                while ( ( read = readFully( in1, buffer1 ) ) > 0 )
+                {
+                    if ( readFully( in2, buffer2 ) != read )
+                    {
+                        return false;
+                    }
+                    for ( int i = 0; i < read; i++ )
+                    {
+                        if ( buffer1[i] != buffer2[i] )
+                        {
+                            return false;
+                        }
+                    }
+                }
+                return in2.read() < 0;
+            }
+            finally
+            {
+                IOUtil.close( in2 );
+            }
+        }
+        finally
+        {
+            IOUtil.close( in1 );
+        }
+    }
+
+    /**
+     * Read until buffer is full or end of stream is reached.
+     *
+     * @return the number of bytes read
+     */
+    private static int readFully( InputStream in, byte[] buffer )
+        throws IOException
+    {
+        int offset = 0;
+        while ( offset < buffer.length )
+        {
+            int read = in.read( buffer, offset, buffer.length - offset );
+            if ( read < 0 )
+            {
+                break;
+            }
+            offset += read;
+        }
+        return offset;
+    }
+}
@@ -30,6 +30,7 @@ import java.util.Map;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.doxia.site.decoration.DecorationModel;
 import org.apache.maven.doxia.site.skin.SkinModel;
+import org.apache.velocity.tools.ToolManager;
 import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.WriterFactory;
 
@@ -78,6 +79,34 @@ public class SiteRenderingContext
 
     private File processedContentOutput;
 
+    private int renderingThreads = 1;
+
+    private boolean incrementalRendering;
+
+    private File documentIndexFile;
+
+    private boolean skipUnchangedOutput;
+
+    private File skinCacheDirectory;
+
+    private boolean linkSkinResources;
+
+    private int bodySpillThreshold = -1;
+
+    private boolean streamBody;
+
+    private List<RenderingListener> renderingListeners = new ArrayList<RenderingListener>();
+
+    private File renderingReportFile;
+
+    private RenderingReport renderingReport;
+
+    private ToolManager toolManager;
+
+    private Map<String, Object> siteVelocityValues;
+
+    private RenderManifest renderManifest;
+
     /**
      * If input documents should be validated before parsing.
      * By default no validation is performed.
@@ -149,6 +178,7 @@ public class SiteRenderingContext
     public void setTemplateProperties( Map<String, ?> templateProperties )
     {
         this.templateProperties = Collections.unmodifiableMap( templateProperties );
+        this.siteVelocityValues = null;
     }
 
     /**
@@ -169,6 +199,7 @@ public class SiteRenderingContext
     public void setLocale( Locale locale )
     {
         this.locale = locale;
+        resetVelocityCache();
     }
 
    /**
@@ -190,6 +221,7 @@ public class SiteRenderingContext
     public void addSiteLocales( List<Locale> locales )
     {
         siteLocales.addAll( locales );
+        this.siteVelocityValues = null;
     }
 
     /**
@@ -210,6 +242,7 @@ public class SiteRenderingContext
     public void setDecoration( DecorationModel decoration )
     {
         this.decoration = decoration;
+        resetVelocityCache();
     }
 
     /**
@@ -423,6 +456,7 @@ public class SiteRenderingContext
     public void setPublishDate( Date publishDate )
     {
         this.publishDate = publishDate;
+        this.siteVelocityValues = null;
     }
 
     /**
@@ -470,4 +504,313 @@ public class SiteRenderingContext
     {
         this.rootDirectory = rootDirectory;
     }
+
+    /**
+     * Number of threads used to render Doxia documents.
+     * By default documents are rendered sequentially, one after the other.
+     *
+     * @return the number of rendering threads, <code>1</code> for sequential rendering
+     * @since 1.9.3
+     */
+    public int getRenderingThreads()
+    {
+        return renderingThreads;
+    }
+
+    /**
+     * Set the number of threads used to render Doxia documents. With a value greater than <code>1</code>, independent
+     * Doxia source documents are rendered in parallel, while other documents (like reports) are still rendered on the
+     * calling thread.
+     *
+     * @param renderingThreads the number of rendering threads, values below <code>1</code> mean sequential rendering
+     * @since 1.9.3
+     */
+    public void setRenderingThreads( int renderingThreads )
+    {
+        this.renderingThreads = Math.max( 1, renderingThreads );
+    }
+
+    /**
+     * If documents are rendered incrementally, based on a render manifest stored in the output directory.
+     * By default, a document is rendered only if its output is older than its source or the site descriptor.
+     *
+     * @return <code>true</code> if rendering is incremental
+     * @since 1.9.3
+     */
+    public boolean isIncrementalRendering()
+    {
+        return incrementalRendering;
+    }
+
+    /**
+     * Switch on/off incremental rendering: when on, a render manifest stored in the output directory records a
+     * fingerprint of every rendered document, computed from its source content (or Velocity processed content for
+     * <code>*.vm</code> sources), the skin, the template, the decoration model, the locale and template properties.
+     * A document is rendered again only if its fingerprint changed or its output is missing, whatever the files
+     * timestamps are.
+     *
+     * @param incrementalRendering <code>true</code> to switch on incremental rendering
+     * @since 1.9.3
+     */
+    public void setIncrementalRendering( boolean incrementalRendering )
+    {
+        this.incrementalRendering = incrementalRendering;
+    }
+
+    /**
+     * File where the document discovery index is stored between builds.
+     *
+     * @return the document index file, or <code>null</code> if documents are discovered without index
+     * @since 1.9.3
+     */
+    public File getDocumentIndexFile()
+    {
+        return documentIndexFile;
+    }
+
+    /**
+     * Set the file where the document discovery index is stored between builds, in general next to the output
+     * directory. The index records the entries and last modification time of every directory scanned while locating
+     * documents: on next build, only directories with a different last modification time are listed again.
+     *
+     * @param documentIndexFile the document index file, or <code>null</code> to discover documents without index
+     * @since 1.9.3
+     */
+    public void setDocumentIndexFile( File documentIndexFile )
+    {
+        this.documentIndexFile = documentIndexFile;
+    }
+
+    /**
+     * If output files are written only when their content changes.
+     *
+     * @return <code>true</code> if unchanged output files are not written again
+     * @since 1.9.3
+     */
+    public boolean isSkipUnchangedOutput()
+    {
+        return skipUnchangedOutput;
+    }
+
+    /**
+     * Switch on/off writing output files only when their content changes: when on, every document rendered, even
+     * reports always rendered, is buffered and compared with the existing output file, which is replaced atomically
+     * only if content differs. Unchanged pages keep their timestamp, for incremental deployments.
+     *
+     * @param skipUnchangedOutput <code>true</code> to skip writing unchanged output files
+     * @since 1.9.3
+     */
+    public void setSkipUnchangedOutput( boolean skipUnchangedOutput )
+    {
+        this.skipUnchangedOutput = skipUnchangedOutput;
+    }
+
+    /**
+     * Directory where skins are extracted once, to copy their resources to every site output directory.
+     *
+     * @return the skin cache directory, or <code>null</code> if skins are extracted in a temporary directory
+     * @since 1.9.3
+     */
+    public File getSkinCacheDirectory()
+    {
+        return skinCacheDirectory;
+    }
+
+    /**
+     * Set the directory where skins are extracted, shared between builds and modules: every skin is extracted in a
+     * sub-directory named from its content fingerprint. Skin resources are then copied to output directories, or
+     * hard linked, see {@link #setLinkSkinResources(boolean)}. Without skin cache directory, skins are extracted once
+     * per renderer in a temporary directory.
+     *
+     * @param skinCacheDirectory the skin cache directory, or <code>null</code> to extract in a temporary directory
+     * @since 1.9.3
+     */
+    public void setSkinCacheDirectory( File skinCacheDirectory )
+    {
+        this.skinCacheDirectory = skinCacheDirectory;
+    }
+
+    /**
+     * If skin resources are hard linked to the extracted skin instead of copied to output directories.
+     *
+     * @return <code>true</code> if skin resources are hard linked
+     * @since 1.9.3
+     */
+    public boolean isLinkSkinResources()
+    {
+        return linkSkinResources;
+    }
+
+    /**
+     * Set if skin resources are hard linked to the extracted skin, when the file system permits, instead of copied to
+     * output directories. Output skin resources must then never be modified in place: an extracted skin found
+     * modified is extracted again, but output directories already linked to it see the modification.
+     * By default, skin resources are copied.
+     *
+     * @param linkSkinResources <code>true</code> to hard link skin resources
+     * @since 1.9.3
+     */
+    public void setLinkSkinResources( boolean linkSkinResources )
+    {
+        this.linkSkinResources = linkSkinResources;
+    }
+
+    /**
+     * Document body length above which the body is spilled to a temporary file while rendering.
+     *
+     * @return the threshold in chars, or a negative value if bodies are always kept in memory
+     * @since 1.9.3
+     */
+    public int getBodySpillThreshold()
+    {
+        return bodySpillThreshold;
+    }
+
+    /**
+     * Set the document body length above which the body is spilled to a temporary file while rendering, instead of
+     * being kept in memory: the body is then streamed from the file when the site template renders
+     * <code>$bodyContent</code>. The value of a spilled <code>$bodyContent</code> is not a <code>String</code>, so
+     * the site template must only render it, not call String methods on it. By default, bodies are always kept in
+     * memory.
+     *
+     * @param bodySpillThreshold the threshold in chars, or a negative value to always keep bodies in memory
+     * @since 1.9.3
+     */
+    public void setBodySpillThreshold( int bodySpillThreshold )
+    {
+        this.bodySpillThreshold = bodySpillThreshold;
+    }
+
+    /**
+     * If document bodies are streamed into the site template while documents are parsed.
+     *
+     * @return <code>true</code> if bodies are streamed
+     * @since 1.9.3
+     */
+    public boolean isStreamBody()
+    {
+        return streamBody;
+    }
+
+    /**
+     * Switch on/off streaming document bodies into the site template while documents are parsed: the template merge
+     * starts on first body content, once document head, title and authors are known, and renders
+     * <code>$bodyContent</code> as the body is parsed. Pages are then rendered in constant memory, whatever their
+     * size, but <code>$bodyContent</code> can be rendered only once, other uses load the whole body in memory, and
+     * document information found after the start of the body is ignored. By default, bodies are merged once parsed.
+     *
+     * @param streamBody <code>true</code> to stream bodies into the site template
+     * @since 1.9.3
+     */
+    public void setStreamBody( boolean streamBody )
+    {
+        this.streamBody = streamBody;
+    }
+
+    /**
+     * Add a listener notified with documents discovery and rendering metrics.
+     *
+     * @param renderingListener the listener
+     * @since 1.9.3
+     */
+    public void addRenderingListener( RenderingListener renderingListener )
+    {
+        renderingListeners.add( renderingListener );
+    }
+
+    /**
+     * @return the rendering listeners
+     * @since 1.9.3
+     */
+    public List<RenderingListener> getRenderingListeners()
+    {
+        return renderingListeners;
+    }
+
+    /**
+     * JSON rendering report file.
+     *
+     * @return the rendering report file, or <code>null</code> if no report is written
+     * @since 1.9.3
+     */
+    public File getRenderingReportFile()
+    {
+        return renderingReportFile;
+    }
+
+    /**
+     * Set the file where a JSON rendering report is written after documents are rendered: discovery time, rendering
+     * time by phase, slowest documents and templates merge time, for documents located and rendered with this
+     * context since the report file was set.
+     *
+     * @param renderingReportFile the rendering report file, or <code>null</code> to write no report
+     * @since 1.9.3
+     */
+    public void setRenderingReportFile( File renderingReportFile )
+    {
+        this.renderingReportFile = renderingReportFile;
+        this.renderingReport = ( renderingReportFile == null ) ? null : new RenderingReport();
+    }
+
+    /**
+     * Rendering report accumulated for the rendering report file.
+     *
+     * @return the rendering report, or <code>null</code> if no report is written
+     */
+    RenderingReport getRenderingReport()
+    {
+        return renderingReport;
+    }
+
+    private void resetVelocityCache()
+    {
+        this.toolManager = null;
+        this.siteVelocityValues = null;
+    }
+
+    /**
+     * Velocity tool manager configured for this context by the renderer, reset when locale or decoration change.
+     *
+     * @return the tool manager, or <code>null</code> if not yet configured
+     */
+    ToolManager getToolManager()
+    {
+        return toolManager;
+    }
+
+    void setToolManager( ToolManager toolManager )
+    {
+        this.toolManager = toolManager;
+    }
+
+    /**
+     * Velocity values shared by every document of the site, computed by the renderer and reset when one of the
+     * values they are computed from changes.
+     *
+     * @return the immutable site values, or <code>null</code> if not yet computed
+     */
+    Map<String, Object> getSiteVelocityValues()
+    {
+        return siteVelocityValues;
+    }
+
+    void setSiteVelocityValues( Map<String, Object> siteVelocityValues )
+    {
+        this.siteVelocityValues = siteVelocityValues;
+    }
+
+    /**
+     * Render manifest of the rendering in progress, if incremental.
+     *
+     * @return the render manifest, or <code>null</code>
+     */
+    RenderManifest getRenderManifest()
+    {
+        return renderManifest;
+    }
+
+    void setRenderManifest( RenderManifest renderManifest )
+    {
+        this.renderManifest = renderManifest;
+    }
 }
@@ -0,0 +1,99 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.velocity.tools.ToolContext;
+
+/**
+ * Velocity tools context for a document, layered on top of the site values shared by every document of a site
+ * rendering: values put in this context take precedence over site values, which take precedence over tools.
+ * Site values are never copied nor modified.
+ *
+ * @since 1.9.3
+ */
+class SiteToolContext
+    extends ToolContext
+{
+    private final Map<String, Object> values = new HashMap<String, Object>();
+
+    private Map<String, Object> siteValues = Collections.emptyMap();
+
+    SiteToolContext( Map<String, Object> toolProps )
+    {
+        super( toolProps );
+    }
+
+    /**
+     * Set the site values this context is layered on.
+     *
+     * @param siteValues immutable site values, shared with other documents
+     */
+    void setSiteValues( Map<String, Object> siteValues )
+    {
+        this.siteValues = siteValues;
+    }
+
+    @Override
+    public Object put( String key, Object value )
+    {
+        return values.put( key, value );
+    }
+
+    @Override
+    public Object get( String key )
+    {
+        Object value = values.get( key );
+
+        if ( value == null )
+        {
+            value = siteValues.get( key );
+        }
+
+        return ( value == null ) ? super.get( key ) : value;
+    }
+
+    @Override
+    public boolean containsKey( Object key )
+    {
+        return values.containsKey( key ) || siteValues.containsKey( key ) || super.containsKey( key );
+    }
+
+    @Override
+    public Object[] getKeys()
+    {
+        Set<Object> keys = new LinkedHashSet<Object>( values.keySet() );
+        keys.addAll( siteValues.keySet() );
+        Collections.addAll( keys, super.getKeys() );
+
+        return keys.toArray();
+    }
+
+    @Override
+    public Object remove( Object key )
+    {
+        return values.remove( key );
+    }
+}
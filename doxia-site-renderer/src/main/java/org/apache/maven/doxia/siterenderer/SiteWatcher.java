@@ -0,0 +1,539 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.artifact.Artifact;
+import org.apache.maven.doxia.site.decoration.DecorationModel;
+
+/**
+ * Watch service for site previews: watches site sources with a {@link WatchService}, and on every change re-renders
+ * only the affected documents with the same {@link Renderer} and {@link SiteRenderingContext}, keeping Velocity
+ * engine, tool managers, site Velocity values and decoration model warm between edits.
+ * <ul>
+ * <li>a change to a document source re-renders this document (new documents are rendered too),</li>
+ * <li>a deleted document source deletes its output,</li>
+ * <li>a change to a site resource copies resources again,</li>
+ * <li>a change to a site descriptor (<code>site*.xml</code> in a site directory), to the skin or to a file
+ * added with {@link #addGlobalFile(File)} re-renders everything, after
+ * {@link #siteChanged(Set, SiteRenderingContext)} reloaded the site rendering context: the decoration model is
+ * built again by the {@link DecorationLoader} given by the caller.</li>
+ * </ul>
+ * Changed documents are always rendered, whatever their output last modification time or render manifest.
+ * The initial rendering is not done by the watcher. Typical use:
+ * <pre>
+ * renderer.render( renderer.locateDocumentFiles( context, true ).values(), context, output );
+ * SiteWatcher watcher = new SiteWatcher( renderer, context, output, true, decorationLoader );
+ * watcher.start();
+ * watcher.watch(); // until watcher.close() from another thread
+ * </pre>
+ *
+ * @since 1.9.3
+ */
+public class SiteWatcher
+    implements Closeable
+{
+    /** Delay to wait for other changes after a first one, to render bursts of changes at once, in milliseconds. */
+    private static final long SETTLE_DELAY = 100;
+
+    /**
+     * Loader of the decoration model, when a site descriptor changed.
+     */
+    public interface DecorationLoader
+    {
+        /**
+         * Build the decoration model again from the site descriptors, for example with
+         * <code>SiteTool.getDecorationModel()</code>, for inheritance and interpolation to be applied.
+         *
+         * @param siteRenderingContext the current site rendering context
+         * @return the decoration model
+         * @throws IOException if a site descriptor cannot be read
+         * @throws RendererException if the decoration model cannot be built
+         */
+        DecorationModel loadDecoration( SiteRenderingContext siteRenderingContext )
+            throws IOException, RendererException;
+    }
+
+    private final Renderer renderer;
+
+    private final File outputDirectory;
+
+    private final boolean editable;
+
+    private final DecorationLoader decorationLoader;
+
+    private SiteRenderingContext siteRenderingContext;
+
+    private final Set<Path> globalFiles = new HashSet<Path>();
+
+    private final Map<WatchKey, Path> directories = new HashMap<WatchKey, Path>();
+
+    private final Set<Path> treeRoots = new HashSet<Path>();
+
+    private WatchService watchService;
+
+    /**
+     * Output names of the located documents, by source path: to delete the output of deleted documents.
+     */
+    private Map<Path, String> outputNames = new HashMap<Path, String>();
+
+    /**
+     * @param renderer the renderer
+     * @param siteRenderingContext the site rendering context, used for every rendering
+     * @param outputDirectory the output directory
+     * @param editable are Doxia documents editable, see {@link Renderer#locateDocumentFiles(SiteRenderingContext,
+     * boolean)}
+     * @param decorationLoader the loader of the decoration model when a site descriptor changed, not null
+     */
+    public SiteWatcher( Renderer renderer, SiteRenderingContext siteRenderingContext, File outputDirectory,
+                        boolean editable, DecorationLoader decorationLoader )
+    {
+        if ( decorationLoader == null )
+        {
+            throw new IllegalArgumentException( "decorationLoader is required" );
+        }
+
+        this.renderer = renderer;
+        this.siteRenderingContext = siteRenderingContext;
+        this.outputDirectory = outputDirectory;
+        this.editable = editable;
+        this.decorationLoader = decorationLoader;
+    }
+
+    /**
+     * Add a file which change re-renders every document, like a parent site descriptor.
+     * Must be called before {@link #start()}.
+     *
+     * @param file the file
+     */
+    public void addGlobalFile( File file )
+    {
+        globalFiles.add( file.toPath().toAbsolutePath().normalize() );
+    }
+
+    /**
+     * Start watching site directories, module directories and global files.
+     *
+     * @throws IOException if watching cannot be set up
+     * @throws RendererException if documents cannot be located
+     */
+    public void start()
+        throws IOException, RendererException
+    {
+        watchService = FileSystems.getDefault().newWatchService();
+
+        outputNames = getOutputNames( renderer.locateDocumentFiles( siteRenderingContext, editable ).values() );
+
+        for ( File siteDirectory : siteRenderingContext.getSiteDirectories() )
+        {
+            registerTree( siteDirectory.toPath() );
+        }
+
+        for ( ExtraDoxiaModuleReference module : siteRenderingContext.getModules() )
+        {
+            registerTree( module.getBasedir().toPath() );
+        }
+
+        if ( siteRenderingContext.getSkin() != null && siteRenderingContext.getSkin().getFile() != null )
+        {
+            addGlobalFile( siteRenderingContext.getSkin().getFile() );
+        }
+
+        for ( Path file : globalFiles )
+        {
+            if ( Files.isDirectory( file.getParent() ) )
+            {
+                register( file.getParent() );
+            }
+        }
+    }
+
+    /**
+     * Watch and render changes, until the watcher is closed.
+     *
+     * @throws IOException if rendering fails
+     * @throws RendererException if rendering fails
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public void watch()
+        throws IOException, RendererException, InterruptedException
+    {
+        try
+        {
+            while ( true )
+            {
+                render( watchService.take() );
+            }
+        }
+        catch ( ClosedWatchServiceException e )
+        {
+            // closed: watching is finished
+        }
+    }
+
+    /**
+     * Wait for changes and render them.
+     *
+     * @param timeout how long to wait for a change
+     * @param unit the timeout unit
+     * @return the rendered documents, empty if no document was rendered
+     * @throws IOException if rendering fails
+     * @throws RendererException if rendering fails
+     * @throws InterruptedException if the thread is interrupted
+     */
+    public Collection<DocumentRenderer> renderChanges( long timeout, TimeUnit unit )
+        throws IOException, RendererException, InterruptedException
+    {
+        WatchKey key = watchService.poll( timeout, unit );
+
+        if ( key == null )
+        {
+            return Collections.emptyList();
+        }
+
+        return render( key );
+    }
+
+    /**
+     * Stop watching.
+     *
+     * @throws IOException if the watch service cannot be closed
+     */
+    public void close()
+        throws IOException
+    {
+        if ( watchService != null )
+        {
+            watchService.close();
+        }
+    }
+
+    /**
+     * Called when a site descriptor, the skin or a global file changed, before every document is rendered again.
+     * Default implementation loads the skin again if it changed, and builds the decoration model again with the
+     * {@link DecorationLoader} if another file changed, like a site descriptor or a parent site descriptor.
+     *
+     * @param changedFiles the changed files
+     * @param siteRenderingContext the current site rendering context
+     * @return the site rendering context to use from now on
+     * @throws IOException if refreshing the context fails
+     * @throws RendererException if refreshing the context fails
+     */
+    protected SiteRenderingContext siteChanged( Set<File> changedFiles, SiteRenderingContext siteRenderingContext )
+        throws IOException, RendererException
+    {
+        Set<File> otherFiles = new HashSet<File>( changedFiles );
+
+        Artifact skin = siteRenderingContext.getSkin();
+        if ( skin != null && skin.getFile() != null && otherFiles.remove( normalize( skin.getFile() ) ) )
+        {
+            reloadSkin( siteRenderingContext );
+        }
+
+        if ( !otherFiles.isEmpty() )
+        {
+            siteRenderingContext.setDecoration( decorationLoader.loadDecoration( siteRenderingContext ) );
+        }
+
+        return siteRenderingContext;
+    }
+
+    /**
+     * Load the skin again, for the site template to use the new skin content.
+     */
+    private void reloadSkin( SiteRenderingContext siteRenderingContext )
+        throws IOException, RendererException
+    {
+        SiteRenderingContext skinContext =
+            renderer.createContextForSkin( siteRenderingContext.getSkin(), siteRenderingContext.getTemplateProperties(),
+                                           siteRenderingContext.getDecoration(),
+                                           siteRenderingContext.getDefaultWindowTitle(),
+                                           siteRenderingContext.getLocale() );
+
+        siteRenderingContext.setTemplateName( skinContext.getTemplateName() );
+        siteRenderingContext.setTemplateClassLoader( skinContext.getTemplateClassLoader() );
+        siteRenderingContext.setUsingDefaultTemplate( skinContext.isUsingDefaultTemplate() );
+        siteRenderingContext.setSkinModel( skinContext.getSkinModel() );
+    }
+
+    private Collection<DocumentRenderer> render( WatchKey first )
+        throws IOException, RendererException, InterruptedException
+    {
+        Set<Path> changed = new HashSet<Path>();
+        boolean overflow = false;
+
+        // collect the burst of changes started by the first key
+        WatchKey key = first;
+        while ( key != null )
+        {
+            overflow |= collect( key, changed );
+            key = watchService.poll( SETTLE_DELAY, TimeUnit.MILLISECONDS );
+        }
+
+        Set<File> globalChanges = new HashSet<File>();
+        boolean resourcesChanged = false;
+
+        for ( Path path : changed )
+        {
+            if ( isGlobal( path ) )
+            {
+                globalChanges.add( path.toFile() );
+            }
+            else if ( isResource( path ) )
+            {
+                resourcesChanged = true;
+            }
+        }
+
+        boolean siteChanged = overflow || !globalChanges.isEmpty();
+
+        if ( siteChanged )
+        {
+            siteRenderingContext = siteChanged( globalChanges, siteRenderingContext );
+            resourcesChanged = true;
+        }
+
+        Collection<DocumentRenderer> documents =
+            renderer.locateDocumentFiles( siteRenderingContext, editable ).values();
+        Map<Path, String> previousOutputNames = outputNames;
+        outputNames = getOutputNames( documents );
+
+        for ( Map.Entry<Path, String> previous : previousOutputNames.entrySet() )
+        {
+            if ( !outputNames.containsKey( previous.getKey() ) && !outputNames.containsValue( previous.getValue() ) )
+            {
+                // deleted document: its output is deleted too
+                Files.deleteIfExists( new File( outputDirectory, previous.getValue() ).toPath() );
+            }
+        }
+
+        Collection<DocumentRenderer> rendered = new ArrayList<DocumentRenderer>();
+
+        for ( DocumentRenderer document : documents )
+        {
+            RenderingContext renderingContext = document.getRenderingContext();
+            File source = new File( renderingContext.getBasedir(), renderingContext.getInputName() );
+
+            if ( siteChanged || changed.contains( normalize( source ).toPath() ) )
+            {
+                // changed: rendered whatever the output looks like
+                rendered.add( ( document instanceof DoxiaDocumentRenderer )
+                                ? new DoxiaDocumentRenderer( renderingContext, true ) : document );
+            }
+        }
+
+        if ( resourcesChanged )
+        {
+            renderer.copyResources( siteRenderingContext, outputDirectory );
+        }
+
+        if ( !rendered.isEmpty() )
+        {
+            renderer.render( rendered, siteRenderingContext, outputDirectory );
+        }
+
+        return rendered;
+    }
+
+    private static Map<Path, String> getOutputNames( Collection<DocumentRenderer> documents )
+    {
+        Map<Path, String> names = new HashMap<Path, String>();
+        for ( DocumentRenderer document : documents )
+        {
+            if ( document instanceof DoxiaDocumentRenderer )
+            {
+                RenderingContext renderingContext = document.getRenderingContext();
+                File source = new File( renderingContext.getBasedir(), renderingContext.getInputName() );
+                names.put( normalize( source ).toPath(), document.getOutputName() );
+            }
+        }
+        return names;
+    }
+
+    /**
+     * Collect changed paths of a watch key, registering new directories.
+     *
+     * @return <code>true</code> if events were lost
+     */
+    private boolean collect( WatchKey key, Set<Path> changed )
+        throws IOException
+    {
+        boolean overflow = false;
+        Path dir = directories.get( key );
+
+        for ( WatchEvent<?> event : key.pollEvents() )
+        {
+            if ( event.kind() == StandardWatchEventKinds.OVERFLOW )
+            {
+                overflow = true;
+                continue;
+            }
+
+            if ( dir == null )
+            {
+                continue;
+            }
+
+            Path path = dir.resolve( (Path) event.context() ).toAbsolutePath().normalize();
+
+            if ( event.kind() == StandardWatchEventKinds.ENTRY_CREATE && isInTree( path )
+                && Files.isDirectory( path ) )
+            {
+                // a new directory: documents created in it before its registration are collected too
+                registerTree( path );
+                collectFiles( path, changed );
+            }
+
+            changed.add( path );
+        }
+
+        if ( !key.reset() )
+        {
+            directories.remove( key );
+        }
+
+        return overflow;
+    }
+
+    private void collectFiles( Path directory, final Set<Path> changed )
+        throws IOException
+    {
+        Files.walkFileTree( directory, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult visitFile( Path file, BasicFileAttributes attrs )
+            {
+                changed.add( file.toAbsolutePath().normalize() );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    private void registerTree( Path root )
+        throws IOException
+    {
+        if ( !Files.isDirectory( root ) )
+        {
+            return;
+        }
+
+        treeRoots.add( root.toAbsolutePath().normalize() );
+
+        Files.walkFileTree( root, new SimpleFileVisitor<Path>()
+        {
+            @Override
+            public FileVisitResult preVisitDirectory( Path dir, BasicFileAttributes attrs )
+                throws IOException
+            {
+                register( dir );
+                return FileVisitResult.CONTINUE;
+            }
+        } );
+    }
+
+    private void register( Path dir )
+        throws IOException
+    {
+        Path path = dir.toAbsolutePath().normalize();
+
+        if ( !directories.containsValue( path ) )
+        {
+            WatchKey key = path.register( watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                                          StandardWatchEventKinds.ENTRY_MODIFY,
+                                          StandardWatchEventKinds.ENTRY_DELETE );
+            directories.put( key, path );
+        }
+    }
+
+    private boolean isInTree( Path path )
+    {
+        for ( Path root : treeRoots )
+        {
+            if ( path.startsWith( root ) )
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean isGlobal( Path path )
+    {
+        return globalFiles.contains( path ) || isSiteDescriptor( path );
+    }
+
+    private boolean isSiteDescriptor( Path path )
+    {
+        String name = path.getFileName().toString();
+        if ( name.startsWith( "site" ) && name.endsWith( ".xml" ) )
+        {
+            // site descriptor, eventually localized
+            for ( File siteDirectory : siteRenderingContext.getSiteDirectories() )
+            {
+                if ( path.getParent().equals( siteDirectory.toPath().toAbsolutePath().normalize() ) )
+                {
+                    return true;
+                }
+            }
+        }
+
+        return false;
+    }
+
+    private static File normalize( File file )
+    {
+        return file.toPath().toAbsolutePath().normalize().toFile();
+    }
+
+    private boolean isResource( Path path )
+    {
+        for ( File siteDirectory : siteRenderingContext.getSiteDirectories() )
+        {
+            if ( path.startsWith( new File( siteDirectory, "resources" ).toPath().toAbsolutePath().normalize() ) )
+            {
+                return true;
+            }
+        }
+
+        return false;
+    }
+}
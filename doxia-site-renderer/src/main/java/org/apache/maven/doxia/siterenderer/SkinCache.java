@@ -0,0 +1,413 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Cache of extracted skins, to copy skin resources to many output directories without reading the skin archive
+ * again: skins are extracted once in a content-addressed directory, keyed by the skin archive fingerprint, then
+ * resources are copied to every output directory, or hard linked if requested.
+ * Extracted files length and last modification time are recorded: an extracted skin that doesn't match them any
+ * more, like a partial extraction or a resource modified in place through a hard link, is extracted again.
+ *
+ * @since 1.9.3
+ */
+class SkinCache
+{
+    /** List of the skin resources, written last in the extracted skin directory: never copied as a resource. */
+    private static final String ENTRIES_FILE = "META-INF/doxia-sitetools-skin-entries.txt";
+
+    private static final String DIRECTORY_PREFIX = "D ";
+
+    private static final String FILE_PREFIX = "F ";
+
+    /** extracted skins, by cache directory and skin file with its length and last modification time */
+    private final Map<String, ExtractedSkin> skins = new HashMap<String, ExtractedSkin>();
+
+    private File temporaryDirectory;
+
+    /**
+     * Get an extracted skin, extracting it if not already in the cache.
+     *
+     * @param skinFile the skin archive
+     * @param cacheDirectory the directory shared between builds where skins are extracted, or <code>null</code> to
+     * extract in a temporary directory private to this cache
+     * @return the extracted skin
+     * @throws IOException if the skin cannot be extracted
+     */
+    synchronized ExtractedSkin get( File skinFile, File cacheDirectory )
+        throws IOException
+    {
+        String key = cacheDirectory + File.pathSeparator + skinFile.getAbsolutePath() + File.pathSeparator
+            + skinFile.length() + File.pathSeparator + skinFile.lastModified();
+
+        ExtractedSkin skin = skins.get( key );
+
+        if ( skin == null || !skin.isValid() )
+        {
+            File directory = ( cacheDirectory == null ) ? getTemporaryDirectory() : cacheDirectory;
+
+            skin = load( skinFile, new File( directory, new Fingerprint().add( skinFile ).digest() ) );
+            skins.put( key, skin );
+        }
+
+        return skin;
+    }
+
+    private File getTemporaryDirectory()
+        throws IOException
+    {
+        if ( temporaryDirectory == null || !temporaryDirectory.isDirectory() )
+        {
+            temporaryDirectory = Files.createTempDirectory( "doxia-sitetools-skins" ).toFile();
+            FileUtils.forceDeleteOnExit( temporaryDirectory );
+        }
+        return temporaryDirectory;
+    }
+
+    /**
+     * Load an extracted skin from its directory, extracting it first if not already done by a previous build, or if
+     * the extracted skin is corrupted.
+     */
+    private static ExtractedSkin load( File skinFile, File directory )
+        throws IOException
+    {
+        ExtractedSkin skin = read( directory );
+
+        if ( skin != null && skin.isValid() )
+        {
+            return skin;
+        }
+
+        File parent = directory.getParentFile();
+        parent.mkdirs();
+
+        if ( directory.exists() )
+        {
+            // partial or modified: move it away before deleting it, for concurrent builds to never use it
+            File corrupted = Files.createTempDirectory( parent.toPath(), directory.getName() + '.' ).toFile();
+            try
+            {
+                Files.move( directory.toPath(), new File( corrupted, directory.getName() ).toPath(),
+                            StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( IOException e )
+            {
+                if ( directory.exists() )
+                {
+                    throw e;
+                }
+                // moved concurrently by another build
+            }
+            finally
+            {
+                FileUtils.deleteDirectory( corrupted );
+            }
+        }
+
+        // extract in a temporary directory then rename, for concurrent builds to never see a partial skin
+        File temp = Files.createTempDirectory( parent.toPath(), directory.getName() + '.' ).toFile();
+        try
+        {
+            extract( skinFile, temp );
+
+            try
+            {
+                Files.move( temp.toPath(), directory.toPath(), StandardCopyOption.ATOMIC_MOVE );
+            }
+            catch ( IOException e )
+            {
+                if ( !new File( directory, ENTRIES_FILE ).isFile() )
+                {
+                    throw e;
+                }
+                // extracted concurrently by another build
+            }
+        }
+        finally
+        {
+            if ( temp.exists() )
+            {
+                FileUtils.deleteDirectory( temp );
+            }
+        }
+
+        skin = read( directory );
+        if ( skin == null )
+        {
+            throw new IOException( "Error while extracting skin " + skinFile + " to " + directory );
+        }
+        return skin;
+    }
+
+    /**
+     * Read the entries of an extracted skin.
+     *
+     * @return the extracted skin, or <code>null</code> if its entries are not found or not readable
+     */
+    private static ExtractedSkin read( File directory )
+        throws IOException
+    {
+        File entriesFile = new File( directory, ENTRIES_FILE );
+
+        if ( !entriesFile.isFile() )
+        {
+            return null;
+        }
+
+        ExtractedSkin skin = new ExtractedSkin( directory );
+
+        BufferedReader reader = new BufferedReader( ReaderFactory.newReader( entriesFile, "UTF-8" ) );
+        try
+        {
+            String line;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                if ( line.startsWith( DIRECTORY_PREFIX ) )
+                {
+                    skin.directories.add( line.substring( DIRECTORY_PREFIX.length() ) );
+                }
+                else if ( line.startsWith( FILE_PREFIX ) )
+                {
+                    // F <length> <last modified> <name>
+                    String[] fields = line.substring( FILE_PREFIX.length() ).split( " ", 3 );
+                    skin.files.add( new SkinFile( fields[2], Long.parseLong( fields[0] ),
+                                                  Long.parseLong( fields[1] ) ) );
+                }
+            }
+        }
+        catch ( RuntimeException e )
+        {
+            // unknown format
+            return null;
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+
+        return skin;
+    }
+
+    private static void extract( File skinFile, File directory )
+        throws IOException
+    {
+        List<String> entries = new ArrayList<String>();
+
+        ZipFile zipFile = DefaultSiteRenderer.getZipFile( skinFile );
+        try
+        {
+            for ( Enumeration<? extends ZipEntry> e = zipFile.entries(); e.hasMoreElements(); )
+            {
+                ZipEntry entry = e.nextElement();
+
+                if ( entry.getName().startsWith( "META-INF/" ) )
+                {
+                    continue;
+                }
+
+                File destFile = new File( directory, entry.getName() );
+
+                if ( entry.isDirectory() )
+                {
+                    destFile.mkdirs();
+                    entries.add( DIRECTORY_PREFIX + entry.getName() );
+                }
+                else
+                {
+                    destFile.getParentFile().mkdirs();
+
+                    OutputStream out = new FileOutputStream( destFile );
+                    try
+                    {
+                        IOUtil.copy( zipFile.getInputStream( entry ), out );
+                    }
+                    finally
+                    {
+                        IOUtil.close( out );
+                    }
+
+                    entries.add( FILE_PREFIX + destFile.length() + ' ' + destFile.lastModified() + ' '
+                        + entry.getName() );
+                }
+            }
+        }
+        finally
+        {
+            DefaultSiteRenderer.closeZipFile( zipFile );
+        }
+
+        File entriesFile = new File( directory, ENTRIES_FILE );
+        entriesFile.getParentFile().mkdirs();
+
+        Writer writer = WriterFactory.newWriter( entriesFile, "UTF-8" );
+        try
+        {
+            PrintWriter out = new PrintWriter( writer );
+            for ( String entry : entries )
+            {
+                out.print( entry + '\n' );
+            }
+            out.flush();
+            if ( out.checkError() )
+            {
+                throw new IOException( "Error while writing skin entries " + entriesFile );
+            }
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+
+    /**
+     * A skin extracted in a directory.
+     */
+    static class ExtractedSkin
+    {
+        private final File directory;
+
+        /** directories entries, in skin archive order */
+        private final List<String> directories = new ArrayList<String>();
+
+        /** files entries, in skin archive order */
+        private final List<SkinFile> files = new ArrayList<SkinFile>();
+
+        private volatile boolean linkable = true;
+
+        ExtractedSkin( File directory )
+        {
+            this.directory = directory;
+        }
+
+        /**
+         * Check that extracted files still have their length and last modification time after extraction.
+         *
+         * @return <code>true</code> if the extracted skin can be used
+         */
+        boolean isValid()
+        {
+            for ( SkinFile file : files )
+            {
+                File extracted = new File( directory, file.name );
+
+                if ( extracted.length() != file.length || extracted.lastModified() != file.lastModified )
+                {
+                    return false;
+                }
+            }
+
+            return directory.isDirectory();
+        }
+
+        /**
+         * Copy skin resources to an output directory, without overriding existing files.
+         *
+         * @param outputDirectory the output directory
+         * @param link <code>true</code> to create hard links to extracted files when the file system permits, instead
+         * of copies: output files must then never be modified in place
+         * @throws IOException if copy fails
+         */
+        void copyTo( File outputDirectory, boolean link )
+            throws IOException
+        {
+            for ( String name : directories )
+            {
+                new File( outputDirectory, name ).mkdirs();
+            }
+
+            for ( SkinFile file : files )
+            {
+                String name = file.name;
+                File destFile = new File( outputDirectory, name );
+
+                if ( destFile.exists() )
+                {
+                    // don't override existing content: avoids extra rewrite with same content or extra site resource
+                    continue;
+                }
+
+                destFile.getParentFile().mkdirs();
+
+                File source = new File( directory, name );
+
+                if ( link && linkable )
+                {
+                    try
+                    {
+                        Files.createLink( destFile.toPath(), source.toPath() );
+                        continue;
+                    }
+                    catch ( IOException e )
+                    {
+                        // in general, output directory on another file store: copy from now on
+                        linkable = false;
+                    }
+                    catch ( UnsupportedOperationException e )
+                    {
+                        linkable = false;
+                    }
+                }
+
+                ResourceCopier.transfer( source, destFile );
+            }
+        }
+    }
+
+    /**
+     * A file of an extracted skin, with its length and last modification time after extraction.
+     */
+    private static class SkinFile
+    {
+        private final String name;
+
+        private final long length;
+
+        private final long lastModified;
+
+        SkinFile( String name, long length, long lastModified )
+        {
+            this.name = name;
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.maven.doxia.site.skin.SkinModel;
+import org.apache.velocity.Template;
+
+/**
+ * Cache of loaded skins, shared by every site rendering context created for a skin: skin model, class loader, and
+ * Velocity templates compiled from this class loader. Skins are keyed by their file, length and last modification
+ * time, so a rebuilt skin is loaded again. Class loaders are kept open until the cache is closed.
+ *
+ * @since 1.9.3
+ */
+class SkinLoaderCache
+{
+    private final Map<String, LoadedSkin> skins = new HashMap<String, LoadedSkin>();
+
+    private final List<URLClassLoader> classLoaders = new ArrayList<URLClassLoader>();
+
+    /**
+     * Compiled templates, by class loader then template name and encoding: only for class loaders known to be
+     * immutable. Templates are kept in memory only: Velocity 1.7 syntax trees are bound to the runtime instance and
+     * its directives, and are not serializable, so they cannot be persisted between builds.
+     */
+    private final ConcurrentMap<ClassLoader, ConcurrentMap<String, Template>> templates =
+        new ConcurrentHashMap<ClassLoader, ConcurrentMap<String, Template>>();
+
+    static String getKey( File skinFile )
+    {
+        return skinFile.getAbsolutePath() + File.pathSeparator + skinFile.length() + File.pathSeparator
+            + skinFile.lastModified();
+    }
+
+    synchronized LoadedSkin get( String key )
+    {
+        return skins.get( key );
+    }
+
+    synchronized void put( String key, LoadedSkin skin )
+    {
+        skins.put( key, skin );
+    }
+
+    /**
+     * Create a class loader for a skin file, closed when this cache is closed, which templates will be cached.
+     *
+     * @param skinFile the skin file
+     * @return the class loader
+     * @throws IOException if the skin file URL is invalid
+     */
+    synchronized URLClassLoader newClassLoader( File skinFile )
+        throws IOException
+    {
+        URLClassLoader classLoader = new URLClassLoader( new URL[] { skinFile.toURI().toURL() } );
+        classLoaders.add( classLoader );
+        addTemplateClassLoader( classLoader );
+        return classLoader;
+    }
+
+    /**
+     * Cache templates loaded from a class loader: class loader resources must not change.
+     *
+     * @param classLoader the class loader
+     */
+    void addTemplateClassLoader( ClassLoader classLoader )
+    {
+        templates.putIfAbsent( classLoader, new ConcurrentHashMap<String, Template>() );
+    }
+
+    /**
+     * @param classLoader the template class loader
+     * @return the compiled templates cache for this class loader, or <code>null</code> if its templates are not cached
+     */
+    ConcurrentMap<String, Template> getTemplates( ClassLoader classLoader )
+    {
+        return ( classLoader == null ) ? null : templates.get( classLoader );
+    }
+
+    /**
+     * Forget every loaded skin and close skin class loaders.
+     */
+    synchronized void close()
+    {
+        for ( URLClassLoader classLoader : classLoaders )
+        {
+            templates.remove( classLoader );
+            try
+            {
+                classLoader.close();
+            }
+            catch ( IOException e )
+            {
+                // ignore
+            }
+        }
+
+        classLoaders.clear();
+        skins.clear();
+    }
+
+    /**
+     * A skin loaded once for every site rendering context.
+     */
+    static class LoadedSkin
+    {
+        private final ClassLoader classLoader;
+
+        private final SkinModel skinModel;
+
+        /**
+         * @param classLoader the skin class loader if it contains a site template, or <code>null</code>
+         * @param skinModel the skin model, or <code>null</code> if the skin has no descriptor
+         */
+        LoadedSkin( ClassLoader classLoader, SkinModel skinModel )
+        {
+            this.classLoader = classLoader;
+            this.skinModel = skinModel;
+        }
+
+        ClassLoader getClassLoader()
+        {
+            return classLoader;
+        }
+
+        SkinModel getSkinModel()
+        {
+            return skinModel;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.maven.doxia.siterenderer.sink.SiteRendererSink;
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.runtime.Renderable;
+
+/**
+ * <code>$bodyContent</code> value of a document which body was spilled to a temporary file: rendering the reference
+ * in the site template streams the body to the output, without loading it in memory. The value is not a
+ * <code>String</code>: String methods called on it by the site template are not supported.
+ *
+ * @since 1.9.3
+ */
+class StreamedBodyContent
+    implements Renderable
+{
+    private final SiteRendererSink sink;
+
+    StreamedBodyContent( SiteRendererSink sink )
+    {
+        this.sink = sink;
+    }
+
+    /** {@inheritDoc} */
+    public boolean render( InternalContextAdapter context, Writer writer )
+        throws IOException
+    {
+        sink.writeBody( writer );
+        return true;
+    }
+
+    @Override
+    public String toString()
+    {
+        return sink.getBody();
+    }
+}
@@ -0,0 +1,239 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+
+import org.apache.velocity.context.InternalContextAdapter;
+import org.apache.velocity.runtime.Renderable;
+
+/**
+ * Writer of a document body streamed into the site template while the document is being parsed: on first body
+ * write, the site template merge is prepared in the rendering thread then started in another thread, and its
+ * <code>$bodyContent</code> reads the body through a bounded buffer. The page is then rendered in constant
+ * memory, whatever the body size.
+ * <p>
+ * The sink must not write the body before the document head is complete, since document head, title and authors
+ * are read when preparing the merge: the merge thread sees only this snapshot, never the sink being written.
+ * <p>
+ * <code>$bodyContent</code> is not a <code>String</code>: String methods calls on it are not supported, and it can be
+ * rendered only once, later renderings being empty.
+ *
+ * @since 1.9.3
+ */
+class StreamedBodyWriter
+    extends Writer
+{
+    static final int PIPE_SIZE = 64 * 1024;
+
+    /**
+     * Merge of a document into the site template.
+     */
+    interface Merge
+    {
+        /**
+         * Prepare the merge, in the rendering thread, from the complete document head.
+         *
+         * @param bodyContent the <code>$bodyContent</code> value
+         */
+        void prepare( Object bodyContent );
+
+        /**
+         * Merge, in the merge thread, with the content prepared.
+         *
+         * @throws RendererException if the merge failed
+         */
+        void merge()
+            throws RendererException;
+    }
+
+    private final String name;
+
+    private final CharPipe pipe;
+
+    private Merge merge;
+
+    private Thread merger;
+
+    private volatile Throwable failure;
+
+    /**
+     * @param name the document name, for messages
+     */
+    StreamedBodyWriter( String name )
+    {
+        this.name = name;
+        this.pipe = new CharPipe( "body of " + name, PIPE_SIZE );
+    }
+
+    /**
+     * @param merge the merge of the document into the site template, prepared and started on first body write
+     */
+    void setMerge( Merge merge )
+    {
+        this.merge = merge;
+    }
+
+    private void start()
+    {
+        if ( merger != null )
+        {
+            return;
+        }
+
+        // snapshot of the document head, safely published to the merge thread by its start
+        merge.prepare( new BodyContent() );
+
+        merger = new Thread( new Runnable()
+        {
+            public void run()
+            {
+                try
+                {
+                    merge.merge();
+                }
+                catch ( Throwable t )
+                {
+                    // reported by finish(), on the rendering thread
+                    failure = t;
+                }
+                finally
+                {
+                    // body is not read any more: discard the rest
+                    pipe.closeReader();
+                }
+            }
+        }, "doxia-merge " + name );
+        merger.setDaemon( true );
+        merger.setContextClassLoader( Thread.currentThread().getContextClassLoader() );
+        merger.start();
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        if ( len == 0 )
+        {
+            return;
+        }
+
+        start();
+
+        try
+        {
+            pipe.write( cbuf, off, len );
+        }
+        catch ( IOException e )
+        {
+            // merge ended before the end of the body: its failure is reported by finish()
+            if ( !pipe.isReaderClosed() )
+            {
+                throw e;
+            }
+        }
+    }
+
+    @Override
+    public void flush()
+    {
+        // nop
+    }
+
+    /**
+     * End of the body.
+     */
+    @Override
+    public void close()
+    {
+        pipe.closeWriter();
+    }
+
+    /**
+     * Wait for the end of the merge, if started, ignoring its failure: to be used when document parsing failed.
+     */
+    void await()
+    {
+        close();
+
+        if ( merger != null )
+        {
+            try
+            {
+                merger.join();
+            }
+            catch ( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Finish the merge once the body is complete: start it if the document has no body, and wait for its end.
+     *
+     * @throws RendererException if the merge failed: other failures, like errors, are rethrown as is
+     */
+    void finish()
+        throws RendererException
+    {
+        start();
+
+        await();
+
+        if ( failure instanceof RendererException )
+        {
+            throw (RendererException) failure;
+        }
+        else if ( failure instanceof RuntimeException )
+        {
+            throw (RuntimeException) failure;
+        }
+        else if ( failure instanceof Error )
+        {
+            throw (Error) failure;
+        }
+        else if ( failure != null )
+        {
+            throw new RendererException( "Error merging " + name + " into the site template", failure );
+        }
+    }
+
+    /**
+     * <code>$bodyContent</code> value, reading the body as it is written: the body is never buffered whole.
+     */
+    private class BodyContent
+        implements Renderable
+    {
+        /** {@inheritDoc} */
+        public boolean render( InternalContextAdapter context, Writer writer )
+            throws IOException
+        {
+            char[] buffer = new char[8 * 1024];
+            int n;
+            while ( ( n = pipe.read( buffer, 0, buffer.length ) ) >= 0 )
+            {
+                writer.write( buffer, 0, n );
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+
+import org.apache.velocity.app.VelocityEngine;
+import org.apache.velocity.context.Context;
+import org.codehaus.plexus.util.IOUtil;
+
+/**
+ * Reader of a Velocity template merge result, produced by another thread through a bounded buffer: the whole merge
+ * result is never kept in memory, and the template is merged only once even when its result is copied. A Velocity
+ * failure is reported as an <code>IOException</code> at the end of the merge result instead of a truncated content,
+ * and is available with {@link #getFailure()}.
+ *
+ * @since 1.9.3
+ */
+class VelocityMergeReader
+    extends Reader
+{
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    private final String resource;
+
+    private final CharPipe pipe;
+
+    private final CountDownLatch done = new CountDownLatch( 1 );
+
+    private volatile Throwable failure;
+
+    private volatile boolean complete;
+
+    private volatile long processingTime;
+
+    /**
+     * Start merging a template.
+     *
+     * @param executor the executor running the merge, that must not queue it behind other merges
+     * @param engine the Velocity engine
+     * @param resource the template resource name
+     * @param encoding the template encoding
+     * @param context the Velocity context
+     * @param copies writers to copy the merge result to, like a file or a fingerprint: closed at the end of the merge
+     */
+    VelocityMergeReader( Executor executor, final VelocityEngine engine, final String resource,
+                         final String encoding, final Context context, final List<Writer> copies )
+    {
+        this.resource = resource;
+        this.pipe = new CharPipe( "Velocity for " + resource, PIPE_SIZE );
+
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        executor.execute( new Runnable()
+        {
+            public void run()
+            {
+                Thread thread = Thread.currentThread();
+                ClassLoader previousClassLoader = thread.getContextClassLoader();
+                thread.setContextClassLoader( contextClassLoader );
+
+                long start = DocumentRenderingMetrics.currentThreadTime();
+                Writer out = new PipeWriter( copies );
+                try
+                {
+                    engine.mergeTemplate( resource, encoding, context, out );
+                    out.close();
+                    complete = true;
+                }
+                catch ( Throwable t )
+                {
+                    // failure after reader close is expected when the consumer stops reading before the end
+                    if ( !pipe.isReaderClosed() )
+                    {
+                        failure = t;
+                    }
+                }
+                finally
+                {
+                    IOUtil.close( out );
+
+                    processingTime = DocumentRenderingMetrics.currentThreadTime() - start;
+
+                    thread.setContextClassLoader( previousClassLoader );
+                    done.countDown();
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return the Velocity merge failure, or <code>null</code> if none happened before the reader was closed
+     */
+    Throwable getFailure()
+    {
+        return failure;
+    }
+
+    /**
+     * @return <code>true</code> if the whole merge result was produced and copied, available once the reader is closed
+     */
+    boolean isComplete()
+    {
+        return complete;
+    }
+
+    /**
+     * @return the merge processing time in nanoseconds, available once the reader is closed
+     * @see DocumentRenderingMetrics#currentThreadTime()
+     */
+    long getProcessingTime()
+    {
+        return processingTime;
+    }
+
+    @Override
+    public int read( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        int n = pipe.read( cbuf, off, len );
+
+        if ( n < 0 && failure != null )
+        {
+            throw new IOException( "Error while processing Velocity for " + resource, failure );
+        }
+
+        return n;
+    }
+
+    /**
+     * Close the reader: the merge is stopped at its next write, and this method waits for the end of the merge.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        pipe.closeReader();
+
+        try
+        {
+            done.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Writer of the merge result to the buffer, eventually copied to other writers.
+     */
+    private class PipeWriter
+        extends Writer
+    {
+        private final List<Writer> copies;
+
+        private boolean closed;
+
+        PipeWriter( List<Writer> copies )
+        {
+            this.copies = copies;
+        }
+
+        @Override
+        public void write( char[] cbuf, int off, int len )
+            throws IOException
+        {
+            for ( Writer copy : copies )
+            {
+                copy.write( cbuf, off, len );
+            }
+
+            pipe.write( cbuf, off, len );
+        }
+
+        @Override
+        public void flush()
+            throws IOException
+        {
+            for ( Writer copy : copies )
+            {
+                copy.flush();
+            }
+        }
+
+        @Override
+        public void close()
+            throws IOException
+        {
+            if ( closed )
+            {
+                return;
+            }
+            closed = true;
+
+            pipe.closeWriter();
+
+            IOException failure = null;
+            for ( Writer copy : copies )
+            {
+                try
+                {
+                    copy.close();
+                }
+                catch ( IOException e )
+                {
+                    failure = ( failure == null ) ? e : failure;
+                }
+            }
+            if ( failure != null )
+            {
+                throw failure;
+            }
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.regex.Pattern;
+
+import org.apache.maven.doxia.parser.AbstractXmlParser;
+import org.codehaus.plexus.logging.Logger;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.SAXNotRecognizedException;
+import org.xml.sax.SAXNotSupportedException;
+import org.xml.sax.SAXParseException;
+import org.xml.sax.XMLReader;
+import org.xml.sax.helpers.DefaultHandler;
+import org.xml.sax.helpers.XMLReaderFactory;
+
+/**
+ * Validator of XML documents shared by every document of every site rendered with a renderer: DTD and XML Schema
+ * grammars are compiled once into a Xerces grammar pool, and external entities are resolved through Doxia's entity
+ * cache, instead of being loaded and compiled again for each document. Applies the same rules as Doxia's
+ * <code>XmlValidator</code>, but on a stream instead of a <code>String</code>. Thread safe.
+ *
+ * @since 1.9.3
+ * @see XmlValidatingReader
+ */
+class XmlStreamValidator
+{
+    private static final String XERCES_PARSER = "org.apache.xerces.parsers.SAXParser";
+
+    private static final String XERCES_GRAMMAR_POOL = "org.apache.xerces.util.XMLGrammarPoolImpl";
+
+    private static final String GRAMMAR_POOL_PROPERTY = "http://apache.org/xml/properties/internal/grammar-pool";
+
+    /** @see org/apache/xerces/impl/msg/XMLMessages.properties#MSG_ELEMENT_NOT_DECLARED */
+    private static final Pattern ELEMENT_TYPE_PATTERN =
+        Pattern.compile( "Element type \".*\" must be declared.", Pattern.DOTALL );
+
+    private final EntityResolver entityResolver = new AbstractXmlParser.CachedFileEntityResolver();
+
+    /** Xerces <code>XMLGrammarPool</code> (thread safe), or <code>null</code> if not available. */
+    private final Object grammarPool = newGrammarPool();
+
+    private static Object newGrammarPool()
+    {
+        try
+        {
+            return Class.forName( XERCES_GRAMMAR_POOL ).newInstance();
+        }
+        catch ( Exception e )
+        {
+            // grammars will be compiled for each document
+            return null;
+        }
+        catch ( LinkageError e )
+        {
+            return null;
+        }
+    }
+
+    /**
+     * Validate an XML content.
+     *
+     * @param content the XML content, not closed by this method
+     * @param resource the resource name, for error messages
+     * @param hasDtdAndXsd <code>true</code> if the content has both a DOCTYPE and an XML Schema reference: element
+     * declaration errors from the DOCTYPE are then ignored, the DOCTYPE being only used for entities
+     * @param logger the logger for warnings
+     * @throws SAXException if the content is not valid
+     * @throws IOException if the content or a grammar can't be read
+     */
+    void validate( Reader content, String resource, boolean hasDtdAndXsd, Logger logger )
+        throws SAXException, IOException
+    {
+        XMLReader xmlReader = XMLReaderFactory.createXMLReader( XERCES_PARSER );
+        xmlReader.setFeature( "http://xml.org/sax/features/validation", true );
+        xmlReader.setFeature( "http://apache.org/xml/features/validation/schema", true );
+        if ( grammarPool != null )
+        {
+            try
+            {
+                xmlReader.setProperty( GRAMMAR_POOL_PROPERTY, grammarPool );
+            }
+            catch ( SAXNotRecognizedException e )
+            {
+                logger.debug( "Xerces grammar pool not supported: " + e.getMessage() );
+            }
+            catch ( SAXNotSupportedException e )
+            {
+                logger.debug( "Xerces grammar pool not supported: " + e.getMessage() );
+            }
+        }
+        xmlReader.setErrorHandler( new MessagesErrorHandler( resource, hasDtdAndXsd, logger ) );
+        xmlReader.setEntityResolver( entityResolver );
+
+        xmlReader.parse( new InputSource( content ) );
+    }
+
+    /**
+     * Fail on errors, except DOCTYPE element declaration errors for a document that also has an XML Schema: such a
+     * DOCTYPE is only used to declare entities like <code>&amp;nbsp;</code>.
+     */
+    private static class MessagesErrorHandler
+        extends DefaultHandler
+    {
+        private final String resource;
+
+        private final boolean hasDtdAndXsd;
+
+        private final Logger logger;
+
+        MessagesErrorHandler( String resource, boolean hasDtdAndXsd, Logger logger )
+        {
+            this.resource = resource;
+            this.hasDtdAndXsd = hasDtdAndXsd;
+            this.logger = logger;
+        }
+
+        @Override
+        public void warning( SAXParseException e )
+        {
+            logger.warn( getMessage( "Warning", e ) );
+        }
+
+        @Override
+        public void error( SAXParseException e )
+            throws SAXException
+        {
+            if ( hasDtdAndXsd && ELEMENT_TYPE_PATTERN.matcher( e.getMessage() ).find() )
+            {
+                return;
+            }
+
+            throw new SAXException( getMessage( "Error", e ), e );
+        }
+
+        @Override
+        public void fatalError( SAXParseException e )
+            throws SAXException
+        {
+            throw new SAXException( getMessage( "Fatal error", e ), e );
+        }
+
+        private String getMessage( String type, SAXParseException e )
+        {
+            String location = ( e.getSystemId() == null ) ? resource : e.getSystemId();
+
+            return type + " at line " + e.getLineNumber() + ", column " + e.getColumnNumber() + " of " + location
+                + ": " + e.getMessage();
+        }
+    }
+}
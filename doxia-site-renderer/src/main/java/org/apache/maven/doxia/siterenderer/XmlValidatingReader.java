@@ -0,0 +1,269 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.regex.Pattern;
+
+import org.apache.maven.doxia.parser.ParseException;
+import org.codehaus.plexus.logging.Logger;
+
+/**
+ * Reader validating the XML content read through it: every char read is copied through a bounded buffer to a
+ * validating parse running in another thread, so the document is validated while it is parsed by Doxia, without
+ * ever being kept whole in memory. The validation result is available with {@link #checkValid()} once the content
+ * has been read.
+ *
+ * @since 1.9.3
+ */
+class XmlValidatingReader
+    extends Reader
+{
+    private static final int PIPE_SIZE = 64 * 1024;
+
+    /** Maximum size of the prolog read before validating, to look for DOCTYPE and XML Schema references. */
+    private static final int PROLOG_MAX_SIZE = 16 * 1024;
+
+    private static final Pattern PATTERN_COMMENT = Pattern.compile( "<!--.*?(-->|$)", Pattern.DOTALL );
+
+    private static final Pattern PATTERN_ROOT_TAG = Pattern.compile( "<[A-Za-z_:][^>]*>" );
+
+    private static final String DOCTYPE = "<!DOCTYPE";
+
+    private static final String XMLNS_XSI = "xmlns:xsi";
+
+    private final Reader source;
+
+    private final CharPipe pipe;
+
+    private final CountDownLatch done = new CountDownLatch( 1 );
+
+    /** start of the content, already read from the source */
+    private final char[] prolog;
+
+    private final int prologLength;
+
+    private int prologRead;
+
+    private boolean eof;
+
+    private volatile Exception failure;
+
+    private volatile long validationTime;
+
+    /**
+     * Start validating a content.
+     *
+     * @param executor the executor running the validation, that must not queue it behind other validations
+     * @param source the XML content, closed with this reader
+     * @param resource the resource name, for messages
+     * @param xmlValidator the validator
+     * @param logger the logger
+     * @throws IOException if the start of the content can't be read
+     */
+    XmlValidatingReader( Executor executor, Reader source, final String resource,
+                         final XmlStreamValidator xmlValidator, final Logger logger )
+        throws IOException
+    {
+        this.source = source;
+        this.pipe = new CharPipe( "XML validation of " + resource, PIPE_SIZE );
+
+        // DOCTYPE and XML Schema references are in the prolog and root element start tag
+        prolog = new char[PROLOG_MAX_SIZE];
+        int length = 0;
+        String start = "";
+        while ( length < prolog.length && !PATTERN_ROOT_TAG.matcher( start ).find() )
+        {
+            int n = source.read( prolog, length, prolog.length - length );
+            if ( n < 0 )
+            {
+                break;
+            }
+            length += n;
+            start = PATTERN_COMMENT.matcher( new String( prolog, 0, length ) ).replaceAll( "" );
+        }
+        prologLength = length;
+
+        final boolean hasDoctype = start.contains( DOCTYPE );
+        final boolean hasXsd = start.contains( XMLNS_XSI );
+
+        final ClassLoader contextClassLoader = Thread.currentThread().getContextClassLoader();
+
+        executor.execute( new Runnable()
+        {
+            public void run()
+            {
+                Thread thread = Thread.currentThread();
+                ClassLoader previousClassLoader = thread.getContextClassLoader();
+                thread.setContextClassLoader( contextClassLoader );
+
+                long start = DocumentRenderingMetrics.currentThreadTime();
+                try
+                {
+                    xmlValidator.validate( new PipeReader(), resource, hasDoctype && hasXsd, logger );
+                }
+                catch ( Exception e )
+                {
+                    failure = e;
+                }
+                finally
+                {
+                    // stop copying content: nothing more to validate
+                    pipe.closeReader();
+
+                    validationTime = DocumentRenderingMetrics.currentThreadTime() - start;
+
+                    thread.setContextClassLoader( previousClassLoader );
+                    done.countDown();
+                }
+            }
+        } );
+    }
+
+    /**
+     * @return the validation time in nanoseconds, available once the reader is closed
+     * @see DocumentRenderingMetrics#currentThreadTime()
+     */
+    long getValidationTime()
+    {
+        return validationTime;
+    }
+
+    @Override
+    public int read( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        int n;
+        if ( prologRead < prologLength )
+        {
+            n = Math.min( len, prologLength - prologRead );
+            System.arraycopy( prolog, prologRead, cbuf, off, n );
+            prologRead += n;
+        }
+        else
+        {
+            n = source.read( cbuf, off, len );
+        }
+
+        if ( n > 0 )
+        {
+            copy( cbuf, off, n );
+        }
+        else if ( n < 0 && !eof )
+        {
+            eof = true;
+            pipe.closeWriter();
+        }
+
+        return n;
+    }
+
+    private void copy( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        try
+        {
+            pipe.write( cbuf, off, len );
+        }
+        catch ( IOException e )
+        {
+            // validation already stopped on an error: reported by checkValid()
+            if ( !pipe.isReaderClosed() )
+            {
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Read the rest of the content if the parser stopped before its end, wait for the end of the validation and
+     * report its failure.
+     *
+     * @throws ParseException if the content is not valid
+     * @throws IOException if the content can't be read
+     */
+    void checkValid()
+        throws ParseException, IOException
+    {
+        char[] buffer = new char[8 * 1024];
+        while ( !pipe.isReaderClosed() && read( buffer, 0, buffer.length ) >= 0 )
+        {
+            // validate remaining content
+        }
+
+        close();
+
+        if ( failure != null )
+        {
+            throw new ParseException( "Error validating the model", failure );
+        }
+    }
+
+    /**
+     * Close the reader: the validation is stopped, and this method waits for its end.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( !eof )
+        {
+            // no more content: the validation fails if the content was not read up to its end
+            eof = true;
+            pipe.closeWriter();
+        }
+
+        try
+        {
+            done.await();
+        }
+        catch ( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            source.close();
+        }
+    }
+
+    /**
+     * Reader of the copied content, for the validator.
+     */
+    private class PipeReader
+        extends Reader
+    {
+        @Override
+        public int read( char[] cbuf, int off, int len )
+            throws IOException
+        {
+            return pipe.read( cbuf, off, len );
+        }
+
+        @Override
+        public void close()
+        {
+            pipe.closeReader();
+        }
+    }
+}
@@ -0,0 +1,316 @@
+package org.apache.maven.doxia.siterenderer.sink;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.file.Files;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.ReaderFactory;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Writer of a document body, kept in memory up to a threshold and spilled to a temporary file above: very large
+ * generated documents, like reports with hundreds of thousands of table rows, then don't need to fit in memory.
+ * The temporary file is readable only by its owner, and deleted when this writer is closed.
+ * The body can also be forwarded to another writer without being kept, once {@link #release() released}: what is
+ * written before, like whitespace preceding the document head, is held in memory until then.
+ * Write failures are kept and reported when the body is read, since the sink writes through a
+ * <code>PrintWriter</code> that swallows them.
+ *
+ * @since 1.9.3
+ */
+class BodyWriter
+    extends Writer
+{
+    private final int threshold;
+
+    private final Writer target;
+
+    private StringBuilder buffer = new StringBuilder();
+
+    private File file;
+
+    private Writer fileWriter;
+
+    private boolean closed;
+
+    private IOException failure;
+
+    /**
+     * @param threshold the body length in chars above which the body is spilled to a temporary file, or a negative
+     * value to always keep the body in memory
+     */
+    BodyWriter( int threshold )
+    {
+        this.threshold = threshold;
+        this.target = null;
+    }
+
+    /**
+     * @param target the writer to forward the body to, closed with this writer
+     */
+    BodyWriter( Writer target )
+    {
+        this.threshold = -1;
+        this.target = target;
+    }
+
+    @Override
+    public void write( char[] cbuf, int off, int len )
+        throws IOException
+    {
+        if ( target != null && buffer == null )
+        {
+            if ( failure != null )
+            {
+                throw failure;
+            }
+
+            target.write( cbuf, off, len );
+            return;
+        }
+
+        if ( failure != null )
+        {
+            throw failure;
+        }
+
+        if ( fileWriter != null )
+        {
+            fileWriter.write( cbuf, off, len );
+            return;
+        }
+
+        buffer.append( cbuf, off, len );
+
+        if ( threshold >= 0 && buffer.length() > threshold )
+        {
+            spill();
+        }
+    }
+
+    @Override
+    public void write( String str, int off, int len )
+        throws IOException
+    {
+        if ( target != null && buffer == null )
+        {
+            if ( failure != null )
+            {
+                throw failure;
+            }
+
+            target.write( str, off, len );
+            return;
+        }
+
+        if ( failure != null )
+        {
+            throw failure;
+        }
+
+        if ( fileWriter != null )
+        {
+            fileWriter.write( str, off, len );
+            return;
+        }
+
+        buffer.append( str, off, off + len );
+
+        if ( threshold >= 0 && buffer.length() > threshold )
+        {
+            spill();
+        }
+    }
+
+    /**
+     * Forward the body held so far, then all subsequent writes, to the target writer. Does nothing if this writer has
+     * no target or was already released.
+     */
+    void release()
+    {
+        if ( target == null || buffer == null )
+        {
+            return;
+        }
+
+        String held = buffer.toString();
+        buffer = null;
+
+        try
+        {
+            target.write( held );
+        }
+        catch ( IOException e )
+        {
+            // the sink has no way to report it: reported on next write
+            failure = e;
+        }
+    }
+
+    private void spill()
+        throws IOException
+    {
+        // owner only permissions where supported
+        file = Files.createTempFile( "doxia-body.", ".html" ).toFile();
+
+        try
+        {
+            fileWriter = WriterFactory.newWriter( file, WriterFactory.UTF_8 );
+            fileWriter.append( buffer );
+            buffer = null;
+        }
+        catch ( IOException e )
+        {
+            // body is lost: reported when read
+            failure = e;
+            buffer = null;
+
+            IOUtil.close( fileWriter );
+            fileWriter = null;
+            file.delete();
+
+            throw e;
+        }
+    }
+
+    @Override
+    public void flush()
+        throws IOException
+    {
+        if ( target != null )
+        {
+            target.flush();
+        }
+        else if ( fileWriter != null && !closed )
+        {
+            fileWriter.flush();
+        }
+    }
+
+    /**
+     * Close the writer: a spilled body temporary file is deleted, the body is no longer available.
+     */
+    @Override
+    public void close()
+        throws IOException
+    {
+        if ( closed )
+        {
+            return;
+        }
+        closed = true;
+
+        if ( target != null )
+        {
+            release();
+            target.close();
+        }
+        else if ( fileWriter != null )
+        {
+            try
+            {
+                fileWriter.close();
+            }
+            finally
+            {
+                file.delete();
+            }
+        }
+    }
+
+    /**
+     * @return <code>true</code> if the body was spilled to a temporary file
+     */
+    boolean isSpilled()
+    {
+        return file != null;
+    }
+
+    /**
+     * Write the body to another writer, without loading the whole body in memory.
+     *
+     * @param out the writer to write the body to
+     * @throws IOException if the body could not be written or read
+     */
+    void writeTo( Writer out )
+        throws IOException
+    {
+        if ( failure != null )
+        {
+            throw new IOException( "Error while writing document body to " + file, failure );
+        }
+
+        if ( file == null )
+        {
+            out.append( buffer );
+            return;
+        }
+
+        flush();
+
+        Reader reader = null;
+        try
+        {
+            reader = ReaderFactory.newReader( file, ReaderFactory.UTF_8 );
+            IOUtil.copy( reader, out );
+            reader.close();
+            reader = null;
+        }
+        finally
+        {
+            IOUtil.close( reader );
+        }
+    }
+
+    /**
+     * @return the whole body, loaded in memory if it was spilled, or an empty String if the body is forwarded
+     */
+    @Override
+    public String toString()
+    {
+        if ( target != null )
+        {
+            // forwarded, not kept
+            return "";
+        }
+
+        if ( file == null )
+        {
+            return buffer.toString();
+        }
+
+        StringWriter out = new StringWriter();
+        try
+        {
+            writeTo( out );
+        }
+        catch ( IOException e )
+        {
+            throw new IllegalStateException( "Unable to read document body from " + file, e );
+        }
+        return out.toString();
+    }
+}
@@ -19,6 +19,7 @@ package org.apache.maven.doxia.siterenderer.sink;
  * under the License.
  */
 
+import java.io.IOException;
 import java.io.StringWriter;
 import java.io.Writer;
 import java.util.ArrayList;
@@ -67,7 +68,7 @@ public class SiteRendererSink
 
     private Set<String> anchorsInSectionTitle;
 
-    private final Writer writer;
+    private final BodyWriter writer;
 
     private RenderingContext renderingContext;
 
@@ -78,7 +79,35 @@ public class SiteRendererSink
      */
     public SiteRendererSink( RenderingContext renderingContext )
     {
-        this( new StringWriter(), renderingContext );
+        this( renderingContext, -1 );
+    }
+
+    /**
+     * Construct a new SiteRendererSink for a document, with a body spilled to a temporary file when its length
+     * exceeds a threshold. A spilled body is available until the sink is closed, which deletes the temporary file.
+     *
+     * @param renderingContext the document's RenderingContext.
+     * @param bodySpillThreshold the body length in chars above which the body is spilled to a temporary file, or a
+     * negative value to always keep the body in memory.
+     * @since 1.9.3
+     */
+    public SiteRendererSink( RenderingContext renderingContext, int bodySpillThreshold )
+    {
+        this( new BodyWriter( bodySpillThreshold ), renderingContext );
+    }
+
+    /**
+     * Construct a new SiteRendererSink for a document, with a body written to a writer as it is rendered instead of
+     * being kept: {@link #getBody()} then returns an empty String. Nothing is written before the end of the document
+     * head, so that its title, authors, date and head are complete when the writer gets its first body output.
+     *
+     * @param renderingContext the document's RenderingContext.
+     * @param bodyWriter the writer for the body, closed when this sink is closed.
+     * @since 1.9.3
+     */
+    public SiteRendererSink( RenderingContext renderingContext, Writer bodyWriter )
+    {
+        this( new BodyWriter( bodyWriter ), renderingContext );
     }
 
     /**
@@ -87,7 +116,7 @@ public class SiteRendererSink
      * @param writer the writer for the sink.
      * @param renderingContext the document's RenderingContext.
      */
-    private SiteRendererSink( StringWriter writer, RenderingContext renderingContext )
+    private SiteRendererSink( BodyWriter writer, RenderingContext renderingContext )
     {
         super( writer );
 
@@ -178,20 +207,26 @@ public class SiteRendererSink
     /**
      * {@inheritDoc}
      *
-     * Do nothing.
+     * Head is complete: a body written to a writer is forwarded from now on.
      * @see org.apache.maven.doxia.module.xhtml5.Xhtml5Sink#body()
      */
     @Override
     public void body()
     {
-        // nop
+        writer.release();
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * Head is complete: a body written to a writer is forwarded from now on.
+     */
     @Override
     public void head_()
     {
         setHeadFlag( false );
+
+        writer.release();
     }
 
     /** {@inheritDoc} */
@@ -333,12 +368,43 @@ public class SiteRendererSink
         return date;
     }
 
-    /** {@inheritDoc} */
+    /**
+     * {@inheritDoc}
+     *
+     * A body spilled to a temporary file is loaded in memory: prefer {@link #writeBody(Writer)}.
+     */
     public String getBody()
     {
         return writer.toString();
     }
 
+    /**
+     * Is the body spilled to a temporary file, because of its length?
+     *
+     * @return <code>true</code> if the body is in a temporary file
+     * @see #writeBody(Writer)
+     * @since 1.9.3
+     */
+    public boolean isBodySpilled()
+    {
+        return writer.isSpilled();
+    }
+
+    /**
+     * Write the html body of the document, without loading it in memory if it was spilled to a temporary file.
+     *
+     * @param out the writer to write the body to
+     * @throws IOException if the body can't be written or read
+     * @since 1.9.3
+     */
+    public void writeBody( Writer out )
+        throws IOException
+    {
+        flush();
+
+        writer.writeTo( out );
+    }
+
     /** {@inheritDoc} */
     public String getHead()
     {
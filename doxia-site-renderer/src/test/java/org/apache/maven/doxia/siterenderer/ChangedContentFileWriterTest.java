@@ -0,0 +1,103 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ChangedContentFileWriterTest
+{
+    private final File directory = new File( "target/changed-content" );
+
+    @Test
+    public void testUnchangedContent() throws Exception
+    {
+        File file = newFile( "unchanged.html", "Hello world" );
+
+        write( file, "Hello world" );
+
+        assertEquals( 1000000000000L, file.lastModified() );
+        assertEquals( "Hello world", FileUtils.fileRead( file, "UTF-8" ) );
+    }
+
+    @Test
+    public void testChangedContent() throws Exception
+    {
+        File file = newFile( "changed.html", "Hello world" );
+
+        write( file, "Hello World" );
+        assertEquals( "Hello World", FileUtils.fileRead( file, "UTF-8" ) );
+        assertTrue( file.lastModified() != 1000000000000L );
+
+        write( file, "Hello" );
+        assertEquals( "Hello", FileUtils.fileRead( file, "UTF-8" ) );
+
+        File created = new File( directory, "created.html" );
+        created.delete();
+        write( created, "Hello" );
+        assertEquals( "Hello", FileUtils.fileRead( created, "UTF-8" ) );
+
+        // no temporary file left
+        for ( String name : directory.list() )
+        {
+            assertFalse( name, name.endsWith( ".tmp" ) );
+        }
+    }
+
+    @Test
+    public void testNothingWritten() throws Exception
+    {
+        File file = newFile( "nothing.html", "Hello world" );
+
+        new ChangedContentFileWriter( file, "UTF-8" ).close();
+
+        assertEquals( "Hello world", FileUtils.fileRead( file, "UTF-8" ) );
+
+        File missing = new File( directory, "missing.html" );
+        new ChangedContentFileWriter( missing, "UTF-8" ).close();
+        assertFalse( missing.exists() );
+    }
+
+    private File newFile( String name, String content )
+        throws IOException
+    {
+        File file = new File( directory, name );
+        directory.mkdirs();
+        FileUtils.fileWrite( file, "UTF-8", content );
+        assertTrue( file.setLastModified( 1000000000000L ) );
+        return file;
+    }
+
+    private static void write( File file, String content )
+        throws IOException
+    {
+        Writer writer = new ChangedContentFileWriter( file, "UTF-8" );
+        writer.write( content );
+        writer.close();
+    }
+}
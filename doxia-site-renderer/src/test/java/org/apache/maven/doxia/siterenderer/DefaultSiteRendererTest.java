@@ -21,6 +21,7 @@ package org.apache.maven.doxia.siterenderer;
 
 import static org.mockito.Matchers.eq;
 import static org.mockito.Matchers.isNull;
+import static org.mockito.Matchers.startsWith;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -32,29 +33,46 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.Writer;
+import java.net.URL;
+import java.net.URLClassLoader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.attribute.PosixFilePermission;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
+import java.util.EnumSet;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.jar.JarOutputStream;
 import java.util.zip.ZipEntry;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.artifact.DefaultArtifact;
+import org.apache.maven.doxia.parser.Parser;
+import org.apache.maven.doxia.sink.impl.XhtmlBaseSink;
 import org.apache.maven.doxia.site.decoration.DecorationModel;
 import org.apache.maven.doxia.site.decoration.io.xpp3.DecorationXpp3Reader;
 import org.apache.maven.doxia.siterenderer.sink.SiteRendererSink;
 import org.apache.maven.doxia.xsd.AbstractXmlValidator;
 import org.codehaus.plexus.PlexusTestCase;
+import org.codehaus.plexus.logging.Logger;
 import org.codehaus.plexus.util.FileUtils;
 import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.Os;
 import org.codehaus.plexus.util.ReaderFactory;
 import org.codehaus.plexus.util.StringUtils;
+import org.codehaus.plexus.util.xml.pull.XmlPullParserException;
 import org.xml.sax.EntityResolver;
 
 /**
@@ -194,6 +212,695 @@ public class DefaultSiteRendererTest
         validatePages();
     }
 
+    public void testRenderParallel()
+        throws Exception
+    {
+        final Set<Thread> renderingThreads = Collections.synchronizedSet( new HashSet<Thread>() );
+
+        SiteRenderingContext ctxt = getTestSiteRenderingContext();
+        ctxt.setRenderingThreads( 4 );
+        ctxt.addRenderingListener( new RenderingListener()
+        {
+            public void documentsLocated( SiteRenderingContext siteRenderingContext, int documents, long time )
+            {
+            }
+
+            public void documentRendered( SiteRenderingContext siteRenderingContext,
+                                          DocumentRenderingMetrics metrics )
+            {
+                renderingThreads.add( Thread.currentThread() );
+            }
+        } );
+
+        assertSameOutputAsDefault( "parallel", ctxt );
+
+        // Doxia documents are rendered by the pool threads, not by the calling thread
+        assertFalse( renderingThreads.contains( Thread.currentThread() ) );
+        assertEquals( 4, renderingThreads.size() );
+    }
+
+    public void testRenderParallelFailures()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-failures" );
+        FileUtils.deleteDirectory( siteDirectory );
+        for ( int i = 1; i <= 2; i++ )
+        {
+            File xdoc = new File( siteDirectory, "xdoc/failure-" + i + ".xml" );
+            xdoc.getParentFile().mkdirs();
+            FileUtils.fileWrite( xdoc, "UTF-8", "<document><body><p>unclosed</body></document>" );
+        }
+        FileUtils.fileWrite( new File( siteDirectory, "xdoc/success.xml" ), "UTF-8",
+                             "<document><body><p>closed</p></body></document>" );
+
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "target/site-failures", false );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+        ctxt.setRenderingThreads( 2 );
+
+        Logger logger = mock( Logger.class );
+        ( (DefaultSiteRenderer) renderer ).enableLogging( logger );
+
+        File output = getTestFile( "target/output-failures" );
+        FileUtils.deleteDirectory( output );
+        try
+        {
+            renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+            fail( "failures not reported" );
+        }
+        catch ( RendererException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "failure-" ) );
+        }
+
+        // every failure is reported, and doesn't prevent other documents rendering
+        verify( logger ).error( startsWith( "Error rendering failure-1.html: " ) );
+        verify( logger ).error( startsWith( "Error rendering failure-2.html: " ) );
+        assertTrue( new File( output, "success.html" ).isFile() );
+    }
+
+    public void testParserPool()
+        throws Exception
+    {
+        Parser singleton = (Parser) lookup( Parser.ROLE, "apt" );
+        ParserPool pool = new ParserPool( getContainer() );
+
+        Parser first = pool.acquire( singleton );
+        Parser second = pool.acquire( singleton );
+        assertNotNull( first );
+        assertNotNull( second );
+        assertNotSame( singleton, first );
+        assertNotSame( first, second );
+
+        // private instances have the singleton requirements, like the macro manager
+        for ( Parser parser : Arrays.asList( first, second ) )
+        {
+            StringWriter out = new StringWriter();
+            parser.parse( new StringReader( "Title\n\n %{echo|text=echoed}\n" ), new XhtmlBaseSink( out ) );
+            assertTrue( out.toString(), out.toString().contains( "echoed" ) );
+        }
+
+        // released instances are reused
+        pool.release( first );
+        assertSame( first, pool.acquire( singleton ) );
+    }
+
+    public void testBodySpill()
+        throws Exception
+    {
+        // every body spilled to a temporary file
+        SiteRenderingContext ctxt = getTestSiteRenderingContext();
+        ctxt.setBodySpillThreshold( 0 );
+
+        assertSameOutputAsDefault( "body-spilled", ctxt );
+    }
+
+    public void testBodySpillTemporaryFile()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-spill" );
+        File templateDirectory = getTestFile( "target/site-spill-template" );
+        FileUtils.deleteDirectory( siteDirectory );
+        FileUtils.copyDirectoryStructure( getTestFile( "src/test/resources/site/apt" ),
+                                          new File( siteDirectory, "apt" ) );
+        templateDirectory.mkdirs();
+        FileUtils.fileWrite( new File( templateDirectory, "spill-probe.vm" ), "UTF-8", "$probe.look()$bodyContent" );
+
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+
+        SpilledBodyProbe probe = new SpilledBodyProbe();
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "target/site-spill", false );
+        ctxt.setTemplateName( "spill-probe.vm" );
+        ctxt.setTemplateClassLoader( new URLClassLoader( new URL[] { templateDirectory.toURI().toURL() } ) );
+        ctxt.setUsingDefaultTemplate( false );
+        Map<String, Object> templateProp = new HashMap<String, Object>();
+        templateProp.put( "probe", probe );
+        ctxt.setTemplateProperties( templateProp );
+        ctxt.setBodySpillThreshold( 0 );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt,
+                         getTestFile( "target/output-spill" ) );
+
+        // bodies were in temporary files while merged, readable only by their owner, deleted once rendered
+        assertFalse( probe.spilled.isEmpty() );
+        assertTrue( probe.shared.toString(), probe.shared.isEmpty() );
+        for ( File spilled : probe.spilled )
+        {
+            assertFalse( spilled.getName(), spilled.exists() );
+        }
+    }
+
+    /**
+     * Velocity template property finding spilled body temporary files created since the probe creation.
+     */
+    public static class SpilledBodyProbe
+    {
+        private final File directory = new File( System.getProperty( "java.io.tmpdir" ) );
+
+        private final Set<File> existing = new HashSet<File>( listBodyFiles() );
+
+        private final Set<File> spilled = new HashSet<File>();
+
+        private final Set<File> shared = new HashSet<File>();
+
+        public String look()
+            throws IOException
+        {
+            for ( File file : listBodyFiles() )
+            {
+                if ( !existing.contains( file ) )
+                {
+                    spilled.add( file );
+
+                    if ( Files.getFileStore( file.toPath() ).supportsFileAttributeView( "posix" )
+                        && !Collections.disjoint( Files.getPosixFilePermissions( file.toPath() ),
+                                                  EnumSet.of( PosixFilePermission.GROUP_READ,
+                                                              PosixFilePermission.OTHERS_READ ) ) )
+                    {
+                        shared.add( file );
+                    }
+                }
+            }
+            return "";
+        }
+
+        private List<File> listBodyFiles()
+        {
+            List<File> files = new ArrayList<File>();
+            for ( File file : directory.listFiles() )
+            {
+                if ( file.getName().startsWith( "doxia-body." ) )
+                {
+                    files.add( file );
+                }
+            }
+            return files;
+        }
+    }
+
+    public void testStreamBody()
+        throws Exception
+    {
+        SiteRenderingContext ctxt = getTestSiteRenderingContext();
+        ctxt.setStreamBody( true );
+
+        assertSameOutputAsDefault( "body-streamed", ctxt );
+    }
+
+    public void testStreamBodyAfterHead()
+        throws Exception
+    {
+        // whitespace between <properties> and <head> is not body output: the body writer gets nothing before
+        // document head is complete, with its <base> and properties
+        final List<String> headsOnFirstWrite = new ArrayList<String>();
+        final SiteRendererSink[] sink = new SiteRendererSink[1];
+        Writer body = new StringWriter()
+        {
+            @Override
+            public void write( String str, int off, int len )
+            {
+                probe();
+                super.write( str, off, len );
+            }
+
+            @Override
+            public void write( char[] cbuf, int off, int len )
+            {
+                probe();
+                super.write( cbuf, off, len );
+            }
+
+            private void probe()
+            {
+                if ( headsOnFirstWrite.isEmpty() )
+                {
+                    headsOnFirstWrite.add( sink[0].getHead() );
+                    assertEquals( "Page Title", sink[0].getTitle() );
+                    assertEquals( Collections.singletonList( "John Doe" ), sink[0].getAuthors() );
+                }
+            }
+        };
+        sink[0] = new SiteRendererSink( new RenderingContext( new File( "" ), "head.xml", "xdoc" ), body );
+
+        Parser parser = (Parser) lookup( Parser.ROLE, "xdoc" );
+        Reader reader = ReaderFactory.newXmlReader( getTestFile( "src/test/resources/site/xdoc/head.xml" ) );
+        try
+        {
+            parser.parse( reader, sink[0] );
+        }
+        finally
+        {
+            reader.close();
+        }
+        sink[0].close();
+
+        assertEquals( 1, headsOnFirstWrite.size() );
+        assertTrue( headsOnFirstWrite.get( 0 ), headsOnFirstWrite.get( 0 ).contains( "<base" ) );
+        assertTrue( body.toString(), body.toString().contains( "Oi!" ) );
+    }
+
+    public void testRenderingMetrics()
+        throws Exception
+    {
+        File output = getTestFile( "target/output-metrics" );
+        File report = getTestFile( "target/output-metrics/rendering-report.json" );
+        FileUtils.deleteDirectory( output );
+
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+
+        final List<DocumentRenderingMetrics> rendered =
+            Collections.synchronizedList( new ArrayList<DocumentRenderingMetrics>() );
+        final int[] located = new int[1];
+
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "src/test/resources/site", false );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+        ctxt.setRenderingReportFile( report );
+        ctxt.addRenderingListener( new RenderingListener()
+        {
+            public void documentsLocated( SiteRenderingContext siteRenderingContext, int documents, long time )
+            {
+                located[0] += documents;
+            }
+
+            public void documentRendered( SiteRenderingContext siteRenderingContext,
+                                          DocumentRenderingMetrics metrics )
+            {
+                rendered.add( metrics );
+            }
+        } );
+        Collection<DocumentRenderer> documents = renderer.locateDocumentFiles( ctxt, true ).values();
+        renderer.render( documents, ctxt, output );
+
+        assertEquals( documents.size(), located[0] );
+        assertEquals( documents.size(), rendered.size() );
+        for ( DocumentRenderingMetrics metrics : rendered )
+        {
+            assertTrue( metrics.getOutputName(), metrics.getTotalTime() > 0 );
+            assertTrue( metrics.getOutputName(), metrics.getTime( DocumentRenderingMetrics.Phase.PARSING ) > 0 );
+            assertTrue( metrics.getOutputName(), metrics.getOutputSize() > 0 );
+        }
+
+        String json = FileUtils.fileRead( report, "UTF-8" );
+        assertTrue( json, json.contains( "\"renderedDocuments\": " + documents.size() ) );
+        assertTrue( json, json.contains( "\"slowestDocuments\"" ) );
+    }
+
+    public void testIncrementalRendering()
+        throws Exception
+    {
+        File output = getTestFile( "target/output-incremental" );
+        FileUtils.deleteDirectory( output );
+
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "src/test/resources/site", false );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+        ctxt.setIncrementalRendering( true );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+
+        File apt = new File( output, "apt.html" );
+        assertTrue( apt.exists() );
+        assertTrue( new File( output, RenderManifest.FILE_NAME ).exists() );
+
+        // unchanged context and sources: nothing is rendered again, whatever timestamps are
+        long lastModified = 1000000000000L;
+        assertTrue( apt.setLastModified( lastModified ) );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+        assertEquals( lastModified, apt.lastModified() );
+
+        // changed site template content: every document is rendered again
+        File template = new File( getBasedir(), "target/test-classes/default-site.vm" );
+        FileUtils.fileAppend( template.getPath(), "## changed\n" );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+        assertTrue( apt.lastModified() != lastModified );
+
+        // changed template properties: every document is rendered again
+        assertTrue( apt.setLastModified( lastModified ) );
+        Map<String, String> templateProp = new HashMap<String, String>();
+        templateProp.put( "outputEncoding", "UTF-8" );
+        templateProp.put( "changed", "true" );
+        ctxt.setTemplateProperties( templateProp );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+        assertTrue( apt.lastModified() != lastModified );
+
+        // missing output is rendered again
+        assertTrue( apt.delete() );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+        assertTrue( apt.exists() );
+    }
+
+    public void testGroupByExtensionIgnoreCase()
+    {
+        List<String> fileNames = Arrays.asList( "b.apt.vm", "a.apt", "c.APT", "d.xml", "e.txt", "f.xml.vm" );
+
+        List<List<String>> groups =
+            DefaultSiteRenderer.groupByExtensionIgnoreCase( fileNames, new String[] { "apt", "xml" } );
+
+        // documents with the extension first, then Velocity documents, each in file names order
+        assertEquals( Arrays.asList( "a.apt", "c.APT", "b.apt.vm" ), groups.get( 0 ) );
+        assertEquals( Arrays.asList( "d.xml", "f.xml.vm" ), groups.get( 1 ) );
+    }
+
+    public void testLocateDocumentFilesClashes()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-clashes" );
+        FileUtils.deleteDirectory( siteDirectory );
+        new File( siteDirectory, "apt" ).mkdirs();
+        new File( siteDirectory, "xdoc" ).mkdirs();
+        FileUtils.fileWrite( new File( siteDirectory, "apt/page.apt" ), "UTF-8", " ------\n Page\n ------\n" );
+        FileUtils.fileWrite( new File( siteDirectory, "apt/Page.apt" ), "UTF-8", " ------\n Page\n ------\n" );
+
+        SiteRenderingContext ctxt = new SiteRenderingContext();
+        ctxt.addSiteDirectory( siteDirectory );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+
+        if ( !Os.isFamily( Os.FAMILY_WINDOWS ) )
+        {
+            // documents differing only by case could clash: kept with a warning
+            Set<String> keys = renderer.locateDocumentFiles( ctxt ).keySet();
+            assertTrue( keys.toString(), keys.contains( "page.html" ) );
+            assertTrue( keys.toString(), keys.contains( "Page.html" ) );
+        }
+
+        // documents with the same output name clash
+        FileUtils.fileWrite( new File( siteDirectory, "xdoc/page.xml" ), "UTF-8", "<document/>" );
+        try
+        {
+            renderer.locateDocumentFiles( ctxt );
+            fail( "clash not detected" );
+        }
+        catch ( RendererException e )
+        {
+            assertTrue( e.getMessage(), e.getMessage().contains( "clashes with existing" ) );
+        }
+    }
+
+    public void testValidationErrorBeforeParseError()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-invalid" );
+        FileUtils.deleteDirectory( siteDirectory );
+        File xdoc = new File( siteDirectory, "xdoc/invalid.xml" );
+        xdoc.getParentFile().mkdirs();
+        // internal DTD, for validation to work offline: an undeclared element, then malformed XML
+        FileUtils.fileWrite( xdoc, "UTF-8", "<?xml version=\"1.0\"?>\n"
+            + "<!DOCTYPE document [\n"
+            + "  <!ELEMENT document (body)>\n"
+            + "  <!ELEMENT body (section)*>\n"
+            + "  <!ELEMENT section (p)*>\n"
+            + "  <!ATTLIST section name CDATA #REQUIRED>\n"
+            + "  <!ELEMENT p (#PCDATA)>\n"
+            + "]>\n"
+            + "<document><body><section name=\"Invalid\">\n"
+            + "<undeclared>not declared</undeclared>\n"
+            + "<p>malformed</section></body></document>\n" );
+
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "target/site-invalid", true );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+
+        try
+        {
+            renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt,
+                             getTestFile( "target/output-invalid" ) );
+            fail( "invalid document rendered" );
+        }
+        catch ( RendererException e )
+        {
+            // validation error is reported, not the parse error it comes before
+            assertTrue( e.getMessage(), e.getMessage().contains( "Error validating the model" ) );
+            assertTrue( e.getCause().getCause().getMessage(),
+                        e.getCause().getCause().getMessage().contains( "\"undeclared\"" ) );
+        }
+    }
+
+    public void testIncrementalVelocityRendering()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-velocity" );
+        File output = getTestFile( "target/output-velocity" );
+        FileUtils.deleteDirectory( siteDirectory );
+        FileUtils.deleteDirectory( output );
+        File source = new File( siteDirectory, "apt/velocity.apt.vm" );
+        source.getParentFile().mkdirs();
+        FileUtils.fileWrite( source, "UTF-8",
+                             " ------\n Velocity\n ------\n\nVelocity\n\n Evaluated$counter.count()\n" );
+
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+
+        EvaluationCounter counter = new EvaluationCounter();
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "target/site-velocity", false );
+        Map<String, Object> templateProp = new HashMap<String, Object>();
+        templateProp.put( "outputEncoding", "UTF-8" );
+        templateProp.put( "counter", counter );
+        ctxt.setTemplateProperties( templateProp );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+        ctxt.setIncrementalRendering( true );
+
+        File html = new File( output, "velocity.html" );
+
+        // Velocity is evaluated once, for both the fingerprint and the parser
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+        assertEquals( 1, counter.evaluations );
+        assertTrue( FileUtils.fileRead( html, "UTF-8" ).contains( "Evaluated" ) );
+
+        // unchanged processed content: output is not written again
+        long lastModified = 1000000000000L;
+        assertTrue( html.setLastModified( lastModified ) );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+        assertEquals( 2, counter.evaluations );
+        assertEquals( lastModified, html.lastModified() );
+
+        // changed processed content: output is written again
+        FileUtils.fileWrite( source, "UTF-8",
+                             " ------\n Velocity\n ------\n\nVelocity\n\n Changed$counter.count()\n" );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+        assertEquals( 3, counter.evaluations );
+        assertTrue( FileUtils.fileRead( html, "UTF-8" ).contains( "Changed" ) );
+    }
+
+    /**
+     * Velocity template property counting document evaluations, with a constant site fingerprint.
+     */
+    public static class EvaluationCounter
+    {
+        private volatile int evaluations;
+
+        public String count()
+        {
+            evaluations++;
+            return "";
+        }
+
+        @Override
+        public String toString()
+        {
+            return "counter";
+        }
+    }
+
+    public void testDocumentFileScanner()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-scanner" );
+        FileUtils.deleteDirectory( siteDirectory );
+        for ( String file : new String[] { "apt/a.apt", "apt/sub/b.apt", "apt/CVS/c.apt", "apt/skip/d.apt",
+            "apt/noextension", "xdoc/e.xml", "resources/f.css" } )
+        {
+            File f = new File( siteDirectory, file );
+            f.getParentFile().mkdirs();
+            FileUtils.fileWrite( f, "UTF-8", file );
+        }
+
+        DocumentFileScanner scanner = new DocumentFileScanner( siteDirectory, null );
+        scanner.addDirectory( "apt", "skip/" );
+        scanner.addDirectory( "xdoc/", null );
+        scanner.addDirectory( "", null );
+        List<List<String>> fileNames = scanner.call();
+
+        // same files as a scan of each directory, without default excludes
+        assertScannedFiles( new File( siteDirectory, "apt" ), "skip/", fileNames.get( 0 ) );
+        assertScannedFiles( new File( siteDirectory, "xdoc" ), null, fileNames.get( 1 ) );
+        assertScannedFiles( siteDirectory, null, fileNames.get( 2 ) );
+
+        // module excludes and files without extension are not found
+        List<String> apt = new ArrayList<String>( fileNames.get( 0 ) );
+        Collections.sort( apt );
+        assertEquals( Arrays.asList( "CVS" + File.separator + "c.apt", "a.apt", "sub" + File.separator + "b.apt" ),
+                      apt );
+    }
+
+    private static void assertScannedFiles( File directory, String excludes, List<String> scanned )
+        throws IOException
+    {
+        List<String> expected = FileUtils.getFileNames( directory, "**/*.*", excludes, false );
+        Collections.sort( expected );
+
+        List<String> actual = new ArrayList<String>( scanned );
+        Collections.sort( actual );
+
+        assertEquals( expected, actual );
+    }
+
+    public void testDocumentIndex()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-document-index" );
+        FileUtils.deleteDirectory( siteDirectory );
+        FileUtils.copyDirectoryStructure( getTestFile( "src/test/resources/site/apt" ),
+                                          new File( siteDirectory, "apt" ) );
+        File index = getTestFile( "target/site-document-index.idx" );
+        index.delete();
+
+        // directories modified long ago, for their listing to be reused
+        long lastModified = 1000000000000L;
+        assertTrue( siteDirectory.setLastModified( lastModified ) );
+        assertTrue( new File( siteDirectory, "apt" ).setLastModified( lastModified ) );
+
+        SiteRenderingContext ctxt = new SiteRenderingContext();
+        ctxt.addSiteDirectory( siteDirectory );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+        Set<String> expected = renderer.locateDocumentFiles( ctxt ).keySet();
+
+        ctxt.setDocumentIndexFile( index );
+        assertEquals( expected, renderer.locateDocumentFiles( ctxt ).keySet() );
+        assertTrue( index.exists() );
+        assertEquals( expected, renderer.locateDocumentFiles( ctxt ).keySet() );
+
+        // a new document changes its directory last modification time
+        FileUtils.fileWrite( new File( siteDirectory, "apt/added.apt" ), "UTF-8", " ------\n Added\n ------\n" );
+        assertTrue( renderer.locateDocumentFiles( ctxt ).containsKey( "added.html" ) );
+    }
+
+    public void testDocumentIndexStore()
+        throws Exception
+    {
+        File directory = getTestFile( "target/document-index-store" );
+        FileUtils.deleteDirectory( directory );
+        File kept = new File( directory, "kept" );
+        File deleted = new File( directory, "deleted" );
+        File added = new File( directory, "added" );
+        assertTrue( kept.mkdirs() && deleted.mkdirs() && added.mkdirs() );
+        File file = new File( directory, "index.idx" );
+
+        DocumentIndex index = DocumentIndex.load( file );
+        index.setEntries( kept.getAbsolutePath(), 1000L, 1000000L, Arrays.asList( "a.apt" ) );
+        index.setEntries( deleted.getAbsolutePath(), 1000L, 1000000L, Arrays.asList( "b.apt" ) );
+        index.store();
+
+        // a later build scanning only another directory, once a recorded directory was deleted
+        FileUtils.deleteDirectory( deleted );
+        index = DocumentIndex.load( file );
+        index.setEntries( added.getAbsolutePath(), 1000L, 1000000L, Arrays.asList( "c.apt" ) );
+        index.store();
+
+        index = DocumentIndex.load( file );
+        assertEquals( Arrays.asList( "a.apt" ), index.getEntries( kept.getAbsolutePath(), 1000L ) );
+        assertEquals( Arrays.asList( "c.apt" ), index.getEntries( added.getAbsolutePath(), 1000L ) );
+        assertNull( index.getEntries( deleted.getAbsolutePath(), 1000L ) );
+        assertNull( index.getEntries( kept.getAbsolutePath(), 2000L ) );
+    }
+
+    private static Collection<DocumentRenderer> renderWatchedChanges( SiteWatcher watcher )
+        throws Exception
+    {
+        Collection<DocumentRenderer> rendered = Collections.emptyList();
+        for ( int i = 0; i < 10 && rendered.isEmpty(); i++ )
+        {
+            rendered = watcher.renderChanges( 1, TimeUnit.SECONDS );
+        }
+        return rendered;
+    }
+
+    public void testSiteWatcher()
+        throws Exception
+    {
+        File siteDirectory = getTestFile( "target/site-watch" );
+        File output = getTestFile( "target/output-watch" );
+        FileUtils.deleteDirectory( siteDirectory );
+        FileUtils.deleteDirectory( output );
+        FileUtils.copyDirectoryStructure( getTestFile( "src/test/resources/site/apt" ),
+                                          new File( siteDirectory, "apt" ) );
+
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "target/site-watch", false );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+
+        final File siteDescriptor = new File( siteDirectory, "site.xml" );
+        SiteWatcher.DecorationLoader decorationLoader = new SiteWatcher.DecorationLoader()
+        {
+            public DecorationModel loadDecoration( SiteRenderingContext siteRenderingContext )
+                throws IOException
+            {
+                Reader reader = ReaderFactory.newXmlReader( siteDescriptor );
+                try
+                {
+                    return new DecorationXpp3Reader().read( reader );
+                }
+                catch ( XmlPullParserException e )
+                {
+                    throw new IOException( e.getMessage(), e );
+                }
+                finally
+                {
+                    IOUtil.close( reader );
+                }
+            }
+        };
+
+        SiteWatcher watcher = new SiteWatcher( renderer, ctxt, output, true, decorationLoader );
+        try
+        {
+            watcher.start();
+
+            // a changed document is rendered, even if its output is not older
+            File apt = new File( siteDirectory, "apt/apt.apt" );
+            FileUtils.fileWrite( apt, "ISO-8859-1", FileUtils.fileRead( apt, "ISO-8859-1" ) );
+            assertTrue( new File( output, "apt.html" ).setLastModified( System.currentTimeMillis() + 10000 ) );
+
+            Collection<DocumentRenderer> rendered = renderWatchedChanges( watcher );
+
+            assertEquals( 1, rendered.size() );
+            assertEquals( "apt.html", rendered.iterator().next().getOutputName() );
+
+            // a changed site descriptor is loaded again, and every document is rendered with it
+            FileUtils.fileWrite( siteDescriptor, "UTF-8",
+                                 "<project><bannerLeft><name>Reloaded banner</name></bannerLeft></project>" );
+
+            rendered = renderWatchedChanges( watcher );
+
+            assertEquals( renderer.locateDocumentFiles( ctxt, true ).size(), rendered.size() );
+            assertEquals( "Reloaded banner", ctxt.getDecoration().getBannerLeft().getName() );
+            assertTrue( FileUtils.fileRead( new File( output, "apt.html" ), "UTF-8" ).contains( "Reloaded banner" ) );
+
+            // a deleted document deletes its output
+            File aptOutput = new File( output, "apt.html" );
+            assertTrue( apt.delete() );
+            for ( int i = 0; i < 10 && aptOutput.exists(); i++ )
+            {
+                watcher.renderChanges( 1, TimeUnit.SECONDS );
+            }
+            assertFalse( aptOutput.exists() );
+            assertTrue( new File( output, "cdc.html" ).exists() );
+        }
+        finally
+        {
+            watcher.close();
+        }
+    }
+
     public void testExternalReport()
         throws Exception
     {
@@ -301,6 +1008,37 @@ public class DefaultSiteRendererTest
         assertEquals( expectedResult, renderResult );
     }
 
+    public void testSkinLoaderCache()
+        throws Exception
+    {
+        Map<String, Object> attributes = new HashMap<String, Object>();
+        attributes.put( "doxiaSiteRendererVersion", "1.7-bogus" );
+
+        Artifact skin = new DefaultArtifact( "org.group", "artifact", "1.1", null, "jar", "", null );
+        skin.setFile( skinJar );
+
+        SiteRenderingContext english = renderer.createContextForSkin( skin, attributes, new DecorationModel(),
+                                                                      "defaultWindowTitle", Locale.ENGLISH );
+        SiteRenderingContext french = renderer.createContextForSkin( skin, attributes, new DecorationModel(),
+                                                                     "defaultWindowTitle", Locale.FRENCH );
+
+        // skin loaded once
+        assertSame( english.getTemplateClassLoader(), french.getTemplateClassLoader() );
+        assertSame( english.getSkinModel(), french.getSkinModel() );
+
+        // compiled template is reused for next merges
+        String expectedResult = StringUtils.unifyLineSeparators(
+            IOUtils.toString( getClass().getResourceAsStream( "velocity-toolmanager.expected.txt" ),
+                              StandardCharsets.UTF_8 ) );
+        for ( int i = 0; i < 2; i++ )
+        {
+            StringWriter writer = new StringWriter();
+            RenderingContext context = new RenderingContext( new File( "" ), "document.html", "generator" );
+            renderer.mergeDocumentIntoSite( writer, new SiteRendererSink( context ), english );
+            assertEquals( expectedResult, writer.toString() );
+        }
+    }
+
     public void testMatchVersion()
         throws Exception
     {
@@ -309,6 +1047,51 @@ public class DefaultSiteRendererTest
         assertFalse( r.matchVersion( "1.7", "1.8" ) );
     }
 
+    /**
+     * @return a rendering context of <code>src/test/resources/site</code> with default rendering options
+     */
+    private SiteRenderingContext getTestSiteRenderingContext()
+        throws Exception
+    {
+        DecorationModel decoration = new DecorationXpp3Reader()
+            .read( new FileReader( getTestFile( "src/test/resources/site/site.xml" ) ) );
+
+        SiteRenderingContext ctxt = getSiteRenderingContext( decoration, "src/test/resources/site", false );
+        ctxt.setRootDirectory( getTestFile( "" ) );
+
+        return ctxt;
+    }
+
+    /**
+     * Render the test site with the given context, and check that the output is the same as with default rendering
+     * options.
+     *
+     * @param name the name of the output
+     * @param ctxt the rendering context of the test site, with the rendering options under test
+     */
+    private void assertSameOutputAsDefault( String name, SiteRenderingContext ctxt )
+        throws Exception
+    {
+        File defaultOutput = getTestFile( "target/output-" + name + "-default" );
+        File output = getTestFile( "target/output-" + name );
+        FileUtils.deleteDirectory( defaultOutput );
+        FileUtils.deleteDirectory( output );
+
+        SiteRenderingContext defaultCtxt = getTestSiteRenderingContext();
+        renderer.render( renderer.locateDocumentFiles( defaultCtxt, true ).values(), defaultCtxt, defaultOutput );
+
+        renderer.render( renderer.locateDocumentFiles( ctxt, true ).values(), ctxt, output );
+
+        List<String> files = FileUtils.getFileNames( defaultOutput, "**/*.html", null, false );
+        assertFalse( files.isEmpty() );
+        assertEquals( files.size(), FileUtils.getFileNames( output, "**/*.html", null, false ).size() );
+        for ( String file : files )
+        {
+            assertEquals( file, FileUtils.fileRead( new File( defaultOutput, file ), "UTF-8" ),
+                          FileUtils.fileRead( new File( output, file ), "UTF-8" ) );
+        }
+    }
+
     private SiteRenderingContext getSiteRenderingContext( DecorationModel decoration, String siteDir, boolean validate )
     {
         SiteRenderingContext ctxt = new SiteRenderingContext();
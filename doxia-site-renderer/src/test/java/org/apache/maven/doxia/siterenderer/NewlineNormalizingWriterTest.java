@@ -0,0 +1,87 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class NewlineNormalizingWriterTest
+{
+    private static final String EOL = "<EOL>";
+
+    @Test
+    public void testNormalizeNewline() throws Exception
+    {
+        String EOL_MACOS9 = "\r";
+        String EOL_UNIX = "\n";
+        String EOL_WIN = "\r\n";
+
+        assertEquals( "Hello " + EOL_MACOS9 + " world", normalize( "Hello " + EOL_MACOS9 + " world" ) );
+        assertEquals( "Hello " + EOL + " world", normalize( "Hello " + EOL_UNIX + " world" ) );
+        assertEquals( "Hello " + EOL + " world", normalize( "Hello " + EOL_WIN + " world" ) );
+
+        assertEquals( "Hello world" + EOL_MACOS9, normalize( "Hello world" + EOL_MACOS9 ) );
+        assertEquals( "Hello world" + EOL, normalize( "Hello world" + EOL_UNIX ) );
+        assertEquals( "Hello world" + EOL, normalize( "Hello world" + EOL_WIN ) );
+
+        assertEquals( EOL + "Hello world", normalize( EOL_UNIX + "Hello world" ) );
+        assertEquals( EOL + "Hello world", normalize( EOL_WIN + "Hello world" ) );
+
+        assertEquals( "\r" + EOL + EOL + "\r", normalize( "\r\r\n\n\r" ) );
+    }
+
+    @Test
+    public void testNewlineSplitBetweenWrites() throws Exception
+    {
+        StringBuilder content = new StringBuilder();
+        for ( int i = 0; i < 5000; i++ )
+        {
+            content.append( "line " ).append( i ).append( ( i % 3 == 0 ) ? "\r\n" : "\n" );
+        }
+        String expected = content.toString().replaceAll( "\r?\n", EOL );
+
+        for ( int chunk = 1; chunk < 5; chunk++ )
+        {
+            StringWriter sw = new StringWriter();
+            Writer writer = new NewlineNormalizingWriter( sw, EOL );
+            for ( int i = 0; i < content.length(); i += chunk )
+            {
+                writer.write( content.substring( i, Math.min( content.length(), i + chunk ) ) );
+            }
+            writer.close();
+
+            assertEquals( expected, sw.toString() );
+        }
+    }
+
+    private String normalize( String text ) throws IOException
+    {
+        StringWriter sw = new StringWriter();
+        Writer writer = new NewlineNormalizingWriter( sw, EOL );
+        writer.write( text );
+        writer.close();
+        return sw.toString();
+    }
+}
@@ -0,0 +1,158 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ResourceCopierTest
+{
+    private final File directory = new File( "target/resource-copier" );
+
+    private final File source = new File( directory, "source" );
+
+    private final File destination = new File( directory, "destination" );
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        source.mkdirs();
+        destination.mkdirs();
+    }
+
+    @Test
+    public void testCopy() throws Exception
+    {
+        newFile( source, "a.css", "a content" );
+        newFile( source, "images/b.png", "b content" );
+        newFile( source, "c.js", "c content" );
+
+        ResourceCopier copier = copy( 4, "a.css", "images/b.png", "c.js" );
+
+        assertEquals( 3, copier.getCopiedFiles() );
+        assertEquals( 0, copier.getSkippedFiles() );
+        assertEquals( 27, copier.getCopiedBytes() );
+        assertEquals( "b content", FileUtils.fileRead( new File( destination, "images/b.png" ), "UTF-8" ) );
+        // copies get their source last modification time
+        assertEquals( 1000000000000L, new File( destination, "c.js" ).lastModified() );
+    }
+
+    @Test
+    public void testSkipUpToDate() throws Exception
+    {
+        newFile( source, "a.css", "a content" );
+        // same length and last modification time: content is not even read
+        newFile( destination, "a.css", "A CONTENT" );
+
+        ResourceCopier copier = copy( 1, "a.css" );
+
+        assertEquals( 0, copier.getCopiedFiles() );
+        assertEquals( 1, copier.getSkippedFiles() );
+        assertEquals( "A CONTENT", FileUtils.fileRead( new File( destination, "a.css" ), "UTF-8" ) );
+    }
+
+    @Test
+    public void testSkipSameContent() throws Exception
+    {
+        newFile( source, "a.css", "a content" );
+        File copy = newFile( destination, "a.css", "a content" );
+        copy.setLastModified( 2000000000000L );
+
+        ResourceCopier copier = copy( 1, "a.css" );
+
+        assertEquals( 0, copier.getCopiedFiles() );
+        assertEquals( 1, copier.getSkippedFiles() );
+        // next copy finds it up to date without reading it
+        assertEquals( 1000000000000L, copy.lastModified() );
+    }
+
+    @Test
+    public void testCopyChanged() throws Exception
+    {
+        newFile( source, "a.css", "a content" );
+        File copy = newFile( destination, "a.css", "A CONTENT" );
+        copy.setLastModified( 2000000000000L );
+
+        ResourceCopier copier = copy( 1, "a.css" );
+
+        assertEquals( 1, copier.getCopiedFiles() );
+        assertEquals( 0, copier.getSkippedFiles() );
+        assertEquals( "a content", FileUtils.fileRead( copy, "UTF-8" ) );
+    }
+
+    @Test
+    public void testHardLinkedDestination() throws Exception
+    {
+        newFile( source, "a.css", "new content" );
+        File linked = newFile( directory, "extracted.css", "old content" );
+        linked.setLastModified( 2000000000000L );
+        Files.createLink( new File( destination, "a.css" ).toPath(), linked.toPath() );
+
+        ResourceCopier copier = copy( 1, "a.css" );
+
+        assertEquals( 1, copier.getCopiedFiles() );
+        assertEquals( "new content", FileUtils.fileRead( new File( destination, "a.css" ), "UTF-8" ) );
+        // link replaced, not written through
+        assertEquals( "old content", FileUtils.fileRead( linked, "UTF-8" ) );
+    }
+
+    @Test
+    public void testHardLinkedDestinationSameContent() throws Exception
+    {
+        newFile( source, "a.css", "same content" );
+        File linked = newFile( directory, "extracted.css", "same content" );
+        linked.setLastModified( 2000000000000L );
+        Files.createLink( new File( destination, "a.css" ).toPath(), linked.toPath() );
+
+        ResourceCopier copier = copy( 1, "a.css" );
+
+        assertEquals( 0, copier.getCopiedFiles() );
+        assertEquals( 1, copier.getSkippedFiles() );
+        // the last modification time of the extracted file is unchanged, for the skin cache to find it valid
+        assertEquals( 2000000000000L, linked.lastModified() );
+    }
+
+    private ResourceCopier copy( int threads, String... names )
+        throws IOException
+    {
+        ResourceCopier copier = new ResourceCopier( threads );
+        copier.copy( source, destination, Arrays.asList( names ) );
+        return copier;
+    }
+
+    private static File newFile( File directory, String name, String content )
+        throws IOException
+    {
+        File file = new File( directory, name );
+        file.getParentFile().mkdirs();
+        FileUtils.fileWrite( file, "UTF-8", content );
+        file.setLastModified( 1000000000000L );
+        return file;
+    }
+}
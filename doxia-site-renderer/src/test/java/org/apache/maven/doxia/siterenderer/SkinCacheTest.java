@@ -0,0 +1,145 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SkinCacheTest
+{
+    private final File directory = new File( "target/skin-cache" );
+
+    private final File cacheDirectory = new File( directory, "cache" );
+
+    private File skinFile;
+
+    @Before
+    public void setUp() throws Exception
+    {
+        FileUtils.deleteDirectory( directory );
+        directory.mkdirs();
+
+        skinFile = new File( directory, "skin.jar" );
+        ZipOutputStream zip = new ZipOutputStream( new FileOutputStream( skinFile ) );
+        try
+        {
+            addEntry( zip, "META-INF/maven/site.vm", "#body()" );
+            addEntry( zip, "css/", null );
+            addEntry( zip, "css/site.css", "body { color: black; }" );
+            addEntry( zip, "images/logo.txt", "logo" );
+        }
+        finally
+        {
+            IOUtil.close( zip );
+        }
+    }
+
+    @Test
+    public void testExtraction() throws Exception
+    {
+        File output = new File( directory, "output" );
+
+        new SkinCache().get( skinFile, cacheDirectory ).copyTo( output, false );
+
+        assertEquals( "body { color: black; }", FileUtils.fileRead( new File( output, "css/site.css" ), "UTF-8" ) );
+        assertEquals( "logo", FileUtils.fileRead( new File( output, "images/logo.txt" ), "UTF-8" ) );
+        assertFalse( new File( output, "META-INF" ).exists() );
+
+        // copies: modifying output in place doesn't modify the extracted skin
+        FileUtils.fileWrite( new File( output, "css/site.css" ), "UTF-8", "modified" );
+        assertEquals( "body { color: black; }",
+                      FileUtils.fileRead( new File( getExtractedDirectory(), "css/site.css" ), "UTF-8" ) );
+    }
+
+    @Test
+    public void testReusedEntry() throws Exception
+    {
+        new SkinCache().get( skinFile, cacheDirectory );
+
+        File marker = new File( getExtractedDirectory(), "marker" );
+        FileUtils.fileWrite( marker, "UTF-8", "not extracted again" );
+
+        // next build: extracted skin is reused
+        File output = new File( directory, "output-reused" );
+        new SkinCache().get( skinFile, cacheDirectory ).copyTo( output, true );
+
+        assertTrue( marker.exists() );
+        assertEquals( "logo", FileUtils.fileRead( new File( output, "images/logo.txt" ), "UTF-8" ) );
+    }
+
+    @Test
+    public void testCorruptedEntry() throws Exception
+    {
+        SkinCache skinCache = new SkinCache();
+        skinCache.get( skinFile, cacheDirectory );
+
+        File marker = new File( getExtractedDirectory(), "marker" );
+        FileUtils.fileWrite( marker, "UTF-8", "extracted again" );
+
+        // like an output resource rewritten in place through a hard link
+        File css = new File( getExtractedDirectory(), "css/site.css" );
+        FileUtils.fileWrite( css, "UTF-8", "corrupted" );
+
+        File output = new File( directory, "output-corrupted" );
+        skinCache.get( skinFile, cacheDirectory ).copyTo( output, false );
+
+        assertFalse( marker.exists() );
+        assertEquals( "body { color: black; }", FileUtils.fileRead( new File( output, "css/site.css" ), "UTF-8" ) );
+
+        // like a partial extraction
+        new File( getExtractedDirectory(), "images/logo.txt" ).delete();
+
+        output = new File( directory, "output-partial" );
+        new SkinCache().get( skinFile, cacheDirectory ).copyTo( output, false );
+
+        assertEquals( "logo", FileUtils.fileRead( new File( output, "images/logo.txt" ), "UTF-8" ) );
+        assertEquals( 1, cacheDirectory.list().length );
+    }
+
+    private File getExtractedDirectory()
+    {
+        File[] extracted = cacheDirectory.listFiles();
+        assertEquals( 1, extracted.length );
+        return extracted[0];
+    }
+
+    private static void addEntry( ZipOutputStream zip, String name, String content )
+        throws IOException
+    {
+        zip.putNextEntry( new ZipEntry( name ) );
+        if ( content != null )
+        {
+            zip.write( content.getBytes( "UTF-8" ) );
+        }
+        zip.closeEntry();
+    }
+}
@@ -0,0 +1,146 @@
+package org.apache.maven.doxia.siterenderer;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.velocity.runtime.Renderable;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class StreamedBodyWriterTest
+{
+    @Test
+    public void testBodyNeverFullyBuffered()
+        throws Exception
+    {
+        final AtomicLong rendered = new AtomicLong();
+        StreamedBodyWriter body = new StreamedBodyWriter( "big.apt" );
+        body.setMerge( new StreamedBodyWriter.Merge()
+        {
+            private Renderable bodyContent;
+
+            public void prepare( Object bodyContent )
+            {
+                this.bodyContent = (Renderable) bodyContent;
+            }
+
+            public void merge()
+                throws RendererException
+            {
+                try
+                {
+                    bodyContent.render( null, new CountingWriter( rendered ) );
+                }
+                catch ( IOException e )
+                {
+                    throw new RendererException( e.getMessage(), e );
+                }
+            }
+        } );
+
+        char[] chunk = new char[1000];
+        Arrays.fill( chunk, 'x' );
+        long written = 0;
+        for ( int i = 0; i < 20 * StreamedBodyWriter.PIPE_SIZE / chunk.length; i++ )
+        {
+            body.write( chunk );
+            written += chunk.length;
+
+            // what is not rendered yet is at most in the pipe and in the render buffer
+            long buffered = written - rendered.get();
+            assertTrue( "buffered " + buffered, buffered <= StreamedBodyWriter.PIPE_SIZE + 8 * 1024 );
+        }
+        body.finish();
+
+        assertEquals( written, rendered.get() );
+    }
+
+    @Test
+    public void testMergeErrorRethrown()
+        throws Exception
+    {
+        final Error error = new LinkageError( "template class not found" );
+        StreamedBodyWriter body = new StreamedBodyWriter( "error.apt" );
+        body.setMerge( new StreamedBodyWriter.Merge()
+        {
+            public void prepare( Object bodyContent )
+            {
+                // nop
+            }
+
+            public void merge()
+            {
+                throw error;
+            }
+        } );
+
+        // merge failure doesn't fail body writes
+        char[] chunk = new char[StreamedBodyWriter.PIPE_SIZE];
+        body.write( chunk );
+        body.write( chunk );
+
+        try
+        {
+            body.finish();
+            fail( "merge error not rethrown" );
+        }
+        catch ( LinkageError e )
+        {
+            assertSame( error, e );
+        }
+    }
+
+    private static class CountingWriter
+        extends Writer
+    {
+        private final AtomicLong count;
+
+        CountingWriter( AtomicLong count )
+        {
+            this.count = count;
+        }
+
+        @Override
+        public void write( char[] cbuf, int off, int len )
+        {
+            count.addAndGet( len );
+        }
+
+        @Override
+        public void flush()
+        {
+            // nop
+        }
+
+        @Override
+        public void close()
+        {
+            // nop
+        }
+    }
+}
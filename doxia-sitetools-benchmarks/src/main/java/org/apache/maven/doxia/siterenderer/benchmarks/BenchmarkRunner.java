@@ -0,0 +1,232 @@
+package org.apache.maven.doxia.siterenderer.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Locale;
+import java.util.Properties;
+
+import org.codehaus.plexus.util.IOUtil;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of the benchmarks jar: runs JMH with the usual command line options, and optionally saves the scores
+ * as a baseline or compares them with a previously saved baseline.
+ * <ul>
+ * <li><code>--save &lt;file&gt;</code>: save the scores to a properties file,</li>
+ * <li><code>--baseline &lt;file&gt;</code>: compare the scores with a saved baseline, and exit with status 1 if a
+ * benchmark regressed more than the threshold,</li>
+ * <li><code>--threshold &lt;percent&gt;</code>: the tolerated regression, 10% by default.</li>
+ * </ul>
+ * Other arguments are given to JMH, for example <code>-p documents=500 renderDocument</code>.
+ *
+ * @since 1.9.3
+ */
+public final class BenchmarkRunner
+{
+    private static final double DEFAULT_THRESHOLD = 10;
+
+    private BenchmarkRunner()
+    {
+        // no op
+    }
+
+    public static void main( String[] args )
+        throws Exception
+    {
+        File save = null;
+        File baseline = null;
+        double threshold = DEFAULT_THRESHOLD;
+        List<String> jmhArgs = new ArrayList<String>();
+
+        for ( int i = 0; i < args.length; i++ )
+        {
+            if ( "--save".equals( args[i] ) && i + 1 < args.length )
+            {
+                save = new File( args[++i] );
+            }
+            else if ( "--baseline".equals( args[i] ) && i + 1 < args.length )
+            {
+                baseline = new File( args[++i] );
+            }
+            else if ( "--threshold".equals( args[i] ) && i + 1 < args.length )
+            {
+                threshold = Double.parseDouble( args[++i] );
+            }
+            else
+            {
+                jmhArgs.add( args[i] );
+            }
+        }
+
+        CommandLineOptions options = new CommandLineOptions( jmhArgs.toArray( new String[jmhArgs.size()] ) );
+        if ( options.shouldHelp() || options.shouldList() || options.shouldListProfilers()
+            || options.shouldListResultFormats() )
+        {
+            // informative runs: let JMH handle them
+            org.openjdk.jmh.Main.main( jmhArgs.toArray( new String[jmhArgs.size()] ) );
+            return;
+        }
+
+        Collection<RunResult> results = new Runner( new OptionsBuilder().parent( options ).build() ).run();
+
+        Properties scores = new Properties();
+        for ( RunResult result : results )
+        {
+            scores.setProperty( getKey( result.getParams() ),
+                                String.valueOf( result.getPrimaryResult().getScore() ) );
+        }
+
+        if ( save != null )
+        {
+            store( scores, save );
+            System.out.println( "Scores saved to " + save );
+        }
+
+        if ( baseline != null && !compare( results, load( baseline ), threshold ) )
+        {
+            System.exit( 1 );
+        }
+    }
+
+    /**
+     * Compare the scores with the baseline and print the differences.
+     *
+     * @return <code>true</code> if no benchmark regressed more than the threshold.
+     */
+    private static boolean compare( Collection<RunResult> results, Properties baseline, double threshold )
+    {
+        boolean success = true;
+
+        System.out.println();
+        System.out.println( String.format( Locale.ENGLISH, "%-70s %14s %14s %9s", "Benchmark", "Baseline",
+                                           "Score", "Change" ) );
+
+        for ( RunResult result : results )
+        {
+            String key = getKey( result.getParams() );
+            double score = result.getPrimaryResult().getScore();
+            String unit = result.getPrimaryResult().getScoreUnit();
+            String base = baseline.getProperty( key );
+
+            if ( base == null )
+            {
+                System.out.println( String.format( Locale.ENGLISH, "%-70s %14s %14.3f %9s  (%s)", key, "-", score,
+                                                   "new", unit ) );
+                continue;
+            }
+
+            double baseScore = Double.parseDouble( base );
+            double change = ( score - baseScore ) * 100 / baseScore;
+
+            // for throughput higher is better, for times lower is better
+            double regression = ( result.getParams().getMode() == Mode.Throughput ) ? -change : change;
+            boolean regressed = regression > threshold;
+            success &= !regressed;
+
+            System.out.println( String.format( Locale.ENGLISH, "%-70s %14.3f %14.3f %+8.1f%%  (%s)%s", key,
+                                               baseScore, score, change, unit, regressed ? " REGRESSION" : "" ) );
+        }
+
+        System.out.println();
+        System.out.println( success ? "No regression above " + threshold + "%"
+                        : "Regression above " + threshold + "% compared to the baseline" );
+
+        return success;
+    }
+
+    /**
+     * @return the benchmark method name with its parameters, for example
+     * <code>SiteRendererBenchmark.renderDocument[documents=100,resources=100,sections=20]</code>.
+     */
+    private static String getKey( BenchmarkParams params )
+    {
+        String benchmark = params.getBenchmark();
+        StringBuilder key = new StringBuilder( benchmark.substring( benchmark.lastIndexOf( '.',
+                                                                    benchmark.lastIndexOf( '.' ) - 1 ) + 1 ) );
+
+        key.append( '[' );
+        boolean first = true;
+        for ( String param : params.getParamsKeys() )
+        {
+            if ( !first )
+            {
+                key.append( ',' );
+            }
+            key.append( param ).append( '=' ).append( params.getParam( param ) );
+            first = false;
+        }
+        key.append( ']' );
+
+        return key.toString();
+    }
+
+    private static Properties load( File file )
+        throws IOException
+    {
+        Properties properties = new Properties();
+        InputStream in = null;
+        try
+        {
+            in = new FileInputStream( file );
+            properties.load( in );
+        }
+        finally
+        {
+            IOUtil.close( in );
+        }
+        return properties;
+    }
+
+    private static void store( Properties properties, File file )
+        throws IOException
+    {
+        if ( file.getParentFile() != null )
+        {
+            file.getParentFile().mkdirs();
+        }
+
+        OutputStream out = null;
+        try
+        {
+            out = new FileOutputStream( file );
+            properties.store( out, "Doxia Sitetools benchmark scores" );
+            out.close();
+            out = null;
+        }
+        finally
+        {
+            IOUtil.close( out );
+        }
+    }
+}
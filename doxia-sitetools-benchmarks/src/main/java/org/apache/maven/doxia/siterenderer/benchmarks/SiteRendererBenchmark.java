@@ -0,0 +1,271 @@
+package org.apache.maven.doxia.siterenderer.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.StringWriter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.maven.doxia.site.decoration.DecorationModel;
+import org.apache.maven.doxia.siterenderer.DocumentRenderer;
+import org.apache.maven.doxia.siterenderer.Renderer;
+import org.apache.maven.doxia.siterenderer.RenderingContext;
+import org.apache.maven.doxia.siterenderer.SiteRenderingContext;
+import org.apache.maven.doxia.siterenderer.sink.SiteRendererSink;
+import org.codehaus.plexus.DefaultPlexusContainer;
+import org.codehaus.plexus.PlexusContainer;
+import org.codehaus.plexus.util.FileUtils;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks of the main {@link Renderer} operations, against a {@link SyntheticSite} rendered with the default
+ * template. The site size is given by the <code>documents</code>, <code>sections</code> and <code>resources</code>
+ * parameters, that can be overridden on the command line with <code>-p name=value,...</code>.
+ *
+ * @since 1.9.3
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MILLISECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class SiteRendererBenchmark
+{
+    private static final String DEFAULT_TEMPLATE = "org/apache/maven/doxia/siterenderer/resources/default-site.vm";
+
+    /** Number of documents in the synthetic site. */
+    @Param( { "100" } )
+    private int documents;
+
+    /** Number of sections in every document. */
+    @Param( { "20" } )
+    private int sections;
+
+    /** Number of resources in the synthetic site. */
+    @Param( { "100" } )
+    private int resources;
+
+    private PlexusContainer container;
+
+    private Renderer renderer;
+
+    private SyntheticSite site;
+
+    private File outputDirectory;
+
+    private SiteRenderingContext siteRenderingContext;
+
+    private RenderingContext aptRenderingContext;
+
+    private SiteRendererSink content;
+
+    @Setup
+    public void setUp()
+        throws Exception
+    {
+        File baseDirectory = new File( System.getProperty( "java.io.tmpdir" ), "doxia-sitetools-benchmarks" );
+        site = new SyntheticSite( new File( baseDirectory, "site" ), documents, sections, resources );
+        site.generate();
+        outputDirectory = new File( baseDirectory, "output" );
+        FileUtils.deleteDirectory( outputDirectory );
+
+        container = new DefaultPlexusContainer();
+        renderer = (Renderer) container.lookup( Renderer.ROLE );
+
+        siteRenderingContext = new SiteRenderingContext();
+        siteRenderingContext.setTemplateName( DEFAULT_TEMPLATE );
+        siteRenderingContext.setTemplateClassLoader( Renderer.class.getClassLoader() );
+        siteRenderingContext.setUsingDefaultTemplate( true );
+        Map<String, String> templateProperties = new HashMap<String, String>();
+        templateProperties.put( "outputEncoding", "UTF-8" );
+        siteRenderingContext.setTemplateProperties( templateProperties );
+        siteRenderingContext.setDecoration( new DecorationModel() );
+        siteRenderingContext.addSiteDirectory( site.getSiteDirectory() );
+
+        aptRenderingContext =
+            new RenderingContext( new File( site.getSiteDirectory(), "apt" ), "apt",
+                                  SyntheticSite.getAptDocumentName( 0 ), "apt", "apt", true, null );
+
+        content = new SiteRendererSink( aptRenderingContext );
+        emitDocument( content );
+    }
+
+    @TearDown
+    public void tearDown()
+        throws Exception
+    {
+        container.dispose();
+        site.delete();
+        FileUtils.deleteDirectory( outputDirectory );
+    }
+
+    /**
+     * Scan the site directories for documents, as done once per site generation.
+     */
+    @Benchmark
+    public Map<String, DocumentRenderer> locateDocumentFiles()
+        throws Exception
+    {
+        return renderer.locateDocumentFiles( siteRenderingContext, true );
+    }
+
+    /**
+     * Render one APT document: Doxia parsing then merge into the site template.
+     */
+    @Benchmark
+    public String renderDocument()
+        throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        renderer.renderDocument( writer, aptRenderingContext, siteRenderingContext );
+        return writer.toString();
+    }
+
+    /**
+     * Merge an already parsed document into the site template, to isolate the Velocity template cost.
+     */
+    @Benchmark
+    public String mergeDocumentIntoSite()
+        throws Exception
+    {
+        StringWriter writer = new StringWriter();
+        renderer.mergeDocumentIntoSite( writer, content, siteRenderingContext );
+        return writer.toString();
+    }
+
+    /**
+     * Copy the template and site resources to an empty output directory.
+     */
+    @Benchmark
+    public void copyResources( EmptyOutput output )
+        throws Exception
+    {
+        renderer.copyResources( siteRenderingContext, output.directory );
+    }
+
+    /**
+     * Copy the template and site resources to an output directory that is already up to date, as in an incremental
+     * site generation.
+     */
+    @Benchmark
+    public void copyResourcesUpToDate()
+        throws Exception
+    {
+        renderer.copyResources( siteRenderingContext, outputDirectory );
+    }
+
+    /**
+     * An output directory emptied before every invocation.
+     */
+    @State( Scope.Thread )
+    public static class EmptyOutput
+    {
+        File directory;
+
+        @Setup( Level.Invocation )
+        public void setUp()
+            throws Exception
+        {
+            directory = new File( System.getProperty( "java.io.tmpdir" ), "doxia-sitetools-benchmarks/empty-output" );
+            FileUtils.deleteDirectory( directory );
+        }
+
+        @TearDown
+        public void tearDown()
+            throws Exception
+        {
+            FileUtils.deleteDirectory( directory );
+        }
+    }
+
+    /**
+     * Emit the Doxia events of a document with the same structure as the synthetic APT documents.
+     */
+    private void emitDocument( SiteRendererSink sink )
+    {
+        sink.head();
+        sink.title();
+        sink.text( "Document 0" );
+        sink.title_();
+        sink.author();
+        sink.text( "Doxia" );
+        sink.author_();
+        sink.head_();
+
+        sink.body();
+        for ( int s = 1; s <= sections; s++ )
+        {
+            sink.section1();
+            sink.sectionTitle1();
+            sink.text( "Section " + s );
+            sink.sectionTitle1_();
+
+            sink.paragraph();
+            sink.text( "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod tempor. With " );
+            sink.bold();
+            sink.text( "bold" );
+            sink.bold_();
+            sink.text( " text, and a " );
+            sink.link( "./document-2.html" );
+            sink.text( "link" );
+            sink.link_();
+            sink.text( "." );
+            sink.paragraph_();
+
+            sink.section2();
+            sink.sectionTitle2();
+            sink.text( "Sub-section " + s + ".1" );
+            sink.sectionTitle2_();
+
+            sink.list();
+            sink.listItem();
+            sink.text( "first item" );
+            sink.listItem_();
+            sink.listItem();
+            sink.text( "second item" );
+            sink.listItem_();
+            sink.list_();
+
+            sink.verbatim( null );
+            sink.text( "int section = " + s + ";" );
+            sink.verbatim_();
+
+            sink.section2_();
+            sink.section1_();
+        }
+        sink.body_();
+        sink.flush();
+    }
+}
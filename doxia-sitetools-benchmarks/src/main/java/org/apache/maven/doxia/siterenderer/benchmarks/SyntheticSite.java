@@ -0,0 +1,231 @@
+package org.apache.maven.doxia.siterenderer.benchmarks;
+
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.util.Random;
+
+import org.codehaus.plexus.util.FileUtils;
+import org.codehaus.plexus.util.IOUtil;
+import org.codehaus.plexus.util.WriterFactory;
+
+/**
+ * Generator of a synthetic site directory, with a configurable number of Doxia documents (half APT, half Xdoc) and
+ * of resources. Content is deterministic, so that two runs with the same size benchmark the same site.
+ *
+ * @since 1.9.3
+ */
+public final class SyntheticSite
+{
+    private static final String LOREM = "Lorem ipsum dolor sit amet, consectetur adipiscing elit, sed do eiusmod "
+        + "tempor incididunt ut labore et dolore magna aliqua. Ut enim ad minim veniam, quis nostrud exercitation "
+        + "ullamco laboris nisi ut aliquip ex ea commodo consequat.";
+
+    private static final int MIN_IMAGE_SIZE = 4 * 1024;
+
+    private static final int MAX_IMAGE_SIZE = 16 * 1024;
+
+    private static final int CSS_RULES = 50;
+
+    private static final int CSS_COLOR = 100000;
+
+    private final File siteDirectory;
+
+    private final int documents;
+
+    private final int sections;
+
+    private final int resources;
+
+    /**
+     * @param siteDirectory the site directory to generate, containing <code>apt</code>, <code>xdoc</code> and
+     * <code>resources</code> sub-directories.
+     * @param documents the number of documents.
+     * @param sections the number of sections in each document.
+     * @param resources the number of resources.
+     */
+    public SyntheticSite( File siteDirectory, int documents, int sections, int resources )
+    {
+        this.siteDirectory = siteDirectory;
+        this.documents = documents;
+        this.sections = sections;
+        this.resources = resources;
+    }
+
+    public File getSiteDirectory()
+    {
+        return siteDirectory;
+    }
+
+    /**
+     * Generate the site directory, after having deleted any previous content.
+     *
+     * @throws IOException if a file can't be written.
+     */
+    public void generate()
+        throws IOException
+    {
+        FileUtils.deleteDirectory( siteDirectory );
+
+        for ( int i = 0; i < documents; i++ )
+        {
+            if ( i % 2 == 0 )
+            {
+                writeFile( new File( siteDirectory, "apt/" + getAptDocumentName( i ) ), getAptDocument( i ) );
+            }
+            else
+            {
+                writeFile( new File( siteDirectory, "xdoc/document-" + i + ".xml" ), getXdocDocument( i ) );
+            }
+        }
+
+        Random random = new Random( 0 );
+        for ( int i = 0; i < resources; i++ )
+        {
+            if ( i % 2 == 0 )
+            {
+                writeFile( new File( siteDirectory, "resources/css/style-" + i + ".css" ), getCss( i ) );
+            }
+            else
+            {
+                byte[] image = new byte[MIN_IMAGE_SIZE + random.nextInt( MAX_IMAGE_SIZE - MIN_IMAGE_SIZE )];
+                random.nextBytes( image );
+
+                File imageFile = new File( siteDirectory, "resources/images/image-" + i + ".png" );
+                imageFile.getParentFile().mkdirs();
+                OutputStream out = null;
+                try
+                {
+                    out = new FileOutputStream( imageFile );
+                    out.write( image );
+                    out.close();
+                    out = null;
+                }
+                finally
+                {
+                    IOUtil.close( out );
+                }
+            }
+        }
+    }
+
+    /**
+     * Delete the site directory.
+     *
+     * @throws IOException if a file can't be deleted.
+     */
+    public void delete()
+        throws IOException
+    {
+        FileUtils.deleteDirectory( siteDirectory );
+    }
+
+    /**
+     * @param index the document index, even for an APT document.
+     * @return the name of the APT document, relative to the <code>apt</code> directory.
+     */
+    public static String getAptDocumentName( int index )
+    {
+        return "document-" + index + ".apt";
+    }
+
+    private String getAptDocument( int index )
+    {
+        StringBuilder apt = new StringBuilder();
+        apt.append( " ------\n Document " ).append( index ).append( "\n ------\n Doxia\n ------\n\n" );
+
+        for ( int s = 1; s <= sections; s++ )
+        {
+            apt.append( "Section " ).append( s ).append( "\n\n" );
+            apt.append( "  " ).append( LOREM ).append( " With <<bold>>, <italic> and <<<monospaced>>> text, and a " )
+                .append( "{{{./document-" ).append( ( index + 2 ) % Math.max( documents, 1 ) )
+                .append( ".html}link}}.\n\n" );
+            apt.append( "* Sub-section " ).append( s ).append( ".1\n\n" );
+            apt.append( "  * first item\n\n  * second item\n\n  []\n\n" );
+            apt.append( "*----+----+----+\n|| A || B || C |\n*----+----+----+\n" );
+            apt.append( "| 1 | 2 | 3 |\n*----+----+----+\n| 4 | 5 | 6 |\n*----+----+----+\n\n" );
+            apt.append( "+---\nint section = " ).append( s ).append( ";\n+---\n\n" );
+        }
+
+        return apt.toString();
+    }
+
+    private String getXdocDocument( int index )
+    {
+        StringBuilder xdoc = new StringBuilder();
+        xdoc.append( "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n" );
+        xdoc.append( "<document>\n  <properties>\n    <title>Document " ).append( index ).append( "</title>\n" );
+        xdoc.append( "    <author>Doxia</author>\n  </properties>\n  <body>\n" );
+
+        for ( int s = 1; s <= sections; s++ )
+        {
+            xdoc.append( "    <section name=\"Section " ).append( s ).append( "\">\n" );
+            xdoc.append( "      <p>" ).append( LOREM ).append( " With <b>bold</b>, <i>italic</i> and " )
+                .append( "<code>monospaced</code> text, and a <a href=\"document-" )
+                .append( ( index + 2 ) % Math.max( documents, 1 ) ).append( ".html\">link</a>.</p>\n" );
+            xdoc.append( "      <subsection name=\"Sub-section " ).append( s ).append( ".1\">\n" );
+            xdoc.append( "        <ul>\n          <li>first item</li>\n          <li>second item</li>\n" );
+            xdoc.append( "        </ul>\n" );
+            xdoc.append( "        <table>\n          <tr><th>A</th><th>B</th><th>C</th></tr>\n" );
+            xdoc.append( "          <tr><td>1</td><td>2</td><td>3</td></tr>\n" );
+            xdoc.append( "          <tr><td>4</td><td>5</td><td>6</td></tr>\n        </table>\n" );
+            xdoc.append( "        <source>int section = " ).append( s ).append( ";</source>\n" );
+            xdoc.append( "      </subsection>\n    </section>\n" );
+        }
+
+        xdoc.append( "  </body>\n</document>\n" );
+
+        return xdoc.toString();
+    }
+
+    private static String getCss( int index )
+    {
+        StringBuilder css = new StringBuilder();
+        for ( int i = 0; i < CSS_RULES; i++ )
+        {
+            css.append( ".rule-" ).append( index ).append( '-' ).append( i )
+                .append( " { margin: " ).append( i ).append( "px; color: #" ).append( CSS_COLOR + i ).append( "; }\n" );
+        }
+        return css.toString();
+    }
+
+    private static void writeFile( File file, String content )
+        throws IOException
+    {
+        file.getParentFile().mkdirs();
+
+        Writer writer = null;
+        try
+        {
+            writer = WriterFactory.newWriter( file, WriterFactory.UTF_8 );
+            writer.write( content );
+            writer.close();
+            writer = null;
+        }
+        finally
+        {
+            IOUtil.close( writer );
+        }
+    }
+}